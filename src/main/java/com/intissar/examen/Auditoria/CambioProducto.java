@@ -0,0 +1,221 @@
+package com.intissar.examen.Auditoria;
+
+import com.intissar.examen.Modelo.Producto;
+
+/**
+ * Cambio realizado sobre un producto: quién, cuándo, qué operación y los valores antes y después.
+ */
+public class CambioProducto {
+
+    /**
+     * Operaciones auditadas.
+     */
+    public enum Operacion {
+        INSERCION,
+        ACTUALIZACION,
+        ELIMINACION
+    }
+
+    /**
+     * Valores de un producto en un momento dado (sin la imagen).
+     */
+    public static class Estado {
+        private final String nombre;
+        private final float precio;
+        private final boolean disponible;
+
+        /**
+         * @param nombre Nombre del producto.
+         * @param precio Precio del producto.
+         * @param disponible Disponibilidad del producto.
+         */
+        public Estado(String nombre, float precio, boolean disponible) {
+            this.nombre = nombre;
+            this.precio = precio;
+            this.disponible = disponible;
+        }
+
+        /**
+         * Copia los valores actuales de un producto.
+         *
+         * @param producto Producto a copiar.
+         * @return El estado del producto.
+         */
+        public static Estado de(Producto producto) {
+            return new Estado(producto.getNombre(), producto.getPrecio(), producto.isDisponible());
+        }
+
+        /**
+         * @return Nombre del producto.
+         */
+        public String getNombre() {
+            return nombre;
+        }
+
+        /**
+         * @return Precio del producto.
+         */
+        public float getPrecio() {
+            return precio;
+        }
+
+        /**
+         * @return Disponibilidad del producto.
+         */
+        public boolean isDisponible() {
+            return disponible;
+        }
+    }
+
+    private final long instante;
+    private final String usuario;
+    private final Operacion operacion;
+    private final String codigo;
+    private final Estado antes;
+    private final Estado despues;
+
+    /**
+     * Constructor del cambio.
+     *
+     * @param instante Momento del cambio en milisegundos desde la época.
+     * @param usuario Usuario que hizo el cambio.
+     * @param operacion Operación realizada.
+     * @param codigo Código del producto.
+     * @param antes Valores previos, o null en una inserción.
+     * @param despues Valores nuevos, o null en un borrado.
+     */
+    public CambioProducto(long instante, String usuario, Operacion operacion, String codigo, Estado antes, Estado despues) {
+        this.instante = instante;
+        this.usuario = usuario;
+        this.operacion = operacion;
+        this.codigo = codigo;
+        this.antes = antes;
+        this.despues = despues;
+    }
+
+    /**
+     * Crea un cambio con el instante actual y el usuario del sistema.
+     *
+     * @param operacion Operación realizada.
+     * @param codigo Código del producto.
+     * @param antes Valores previos, o null en una inserción.
+     * @param despues Valores nuevos, o null en un borrado.
+     * @return El cambio.
+     */
+    public static CambioProducto ahora(Operacion operacion, String codigo, Estado antes, Estado despues) {
+        return new CambioProducto(System.currentTimeMillis(), System.getProperty("user.name"), operacion, codigo, antes, despues);
+    }
+
+    /**
+     * @return Momento del cambio en milisegundos desde la época.
+     */
+    public long getInstante() {
+        return instante;
+    }
+
+    /**
+     * @return Usuario que hizo el cambio.
+     */
+    public String getUsuario() {
+        return usuario;
+    }
+
+    /**
+     * @return Operación realizada.
+     */
+    public Operacion getOperacion() {
+        return operacion;
+    }
+
+    /**
+     * @return Código del producto.
+     */
+    public String getCodigo() {
+        return codigo;
+    }
+
+    /**
+     * @return Valores previos, o null en una inserción.
+     */
+    public Estado getAntes() {
+        return antes;
+    }
+
+    /**
+     * @return Valores nuevos, o null en un borrado.
+     */
+    public Estado getDespues() {
+        return despues;
+    }
+
+    /**
+     * Serializa el cambio como una línea JSON (sin salto de línea final).
+     * Los campos {@code ts} y {@code codigo} van siempre primero para que la consulta offline pueda filtrar sin analizar el resto.
+     *
+     * @return El cambio en formato JSON.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(160);
+        json.append("{\"ts\":").append(instante)
+                .append(",\"codigo\":");
+        cadena(json, codigo);
+        json.append(",\"op\":\"").append(operacion.name()).append('"')
+                .append(",\"usuario\":");
+        cadena(json, usuario);
+        json.append(",\"antes\":");
+        estado(json, antes);
+        json.append(",\"despues\":");
+        estado(json, despues);
+        return json.append('}').toString();
+    }
+
+    /**
+     * Serializa los valores de un estado como JSON, o "null".
+     *
+     * @param estado Estado a serializar.
+     * @return El estado en formato JSON.
+     */
+    static String estadoJson(Estado estado) {
+        StringBuilder json = new StringBuilder(64);
+        estado(json, estado);
+        return json.toString();
+    }
+
+    private static void estado(StringBuilder json, Estado estado) {
+        if (estado == null) {
+            json.append("null");
+            return;
+        }
+        json.append("{\"nombre\":");
+        cadena(json, estado.nombre);
+        json.append(",\"precio\":").append(estado.precio)
+                .append(",\"disponible\":").append(estado.disponible)
+                .append('}');
+    }
+
+    private static void cadena(StringBuilder json, String valor) {
+        if (valor == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
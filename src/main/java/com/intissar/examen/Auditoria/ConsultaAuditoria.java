@@ -0,0 +1,157 @@
+package com.intissar.examen.Auditoria;
+
+import com.intissar.examen.OpcionesLinea;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Herramienta de consulta offline del registro de auditoría.
+ * <p>
+ * Recorre los ficheros JSON Lines del directorio de auditoría en orden cronológico y muestra los cambios
+ * que cumplen los filtros. Uso:
+ * <pre>
+ * ConsultaAuditoria [--directorio=auditoria] [--codigo=LIM33] [--desde=2024-11-08T10:00] [--hasta=2024-11-09]
+ * </pre>
+ * Las fechas aceptan un instante ISO-8601 ({@code 2024-11-08T10:00:00Z}), una fecha y hora local o solo una fecha.
+ */
+public class ConsultaAuditoria {
+    // Los campos ts y codigo son siempre los primeros de cada línea (ver CambioProducto.toJson)
+    private static final Pattern CABECERA = Pattern.compile("^\\{\"ts\":(\\d+),\"codigo\":(null|\"((?:[^\"\\\\]|\\\\.)*)\")");
+
+    private ConsultaAuditoria() {
+    }
+
+    /**
+     * Punto de entrada de la consulta.
+     *
+     * @param args Filtros con el formato {@code --clave=valor}.
+     * @throws IOException Si no se pueden leer los ficheros.
+     */
+    public static void main(String[] args) throws IOException {
+        OpcionesLinea opciones = OpcionesLinea.leer(args);
+        opciones.admitir("directorio", "codigo", "desde", "hasta");
+
+        long encontrados = consultar(
+                Paths.get(opciones.texto("directorio", "auditoria")),
+                opciones.texto("codigo", null),
+                opciones.contiene("desde") ? leerInstante(opciones.obligatoria("desde")) : Long.MIN_VALUE,
+                opciones.contiene("hasta") ? leerInstante(opciones.obligatoria("hasta")) : Long.MAX_VALUE);
+        System.err.println(encontrados + " cambios encontrados");
+    }
+
+    /**
+     * Muestra por la salida estándar los cambios que cumplen los filtros.
+     *
+     * @param directorio Directorio de los ficheros de auditoría.
+     * @param codigo Código del producto, sin distinguir mayúsculas de minúsculas como la columna codigo, o null para todos.
+     * @param desde Instante mínimo (inclusive) en milisegundos.
+     * @param hasta Instante máximo (inclusive) en milisegundos.
+     * @return Número de cambios encontrados.
+     * @throws IOException Si no se pueden leer los ficheros.
+     */
+    public static long consultar(Path directorio, String codigo, long desde, long hasta) throws IOException {
+        List<Path> ficheros = new ArrayList<>();
+        try (DirectoryStream<Path> listado = Files.newDirectoryStream(directorio,
+                RegistroAuditoria.PREFIJO_FICHERO + "*" + RegistroAuditoria.EXTENSION_FICHERO)) {
+            listado.forEach(ficheros::add);
+        }
+        // El nombre lleva el instante de creación con ancho fijo, así que el orden alfabético es el cronológico
+        ficheros.sort(null);
+
+        long encontrados = 0;
+        for (int i = 0; i < ficheros.size(); i++) {
+            // Un fichero solo contiene cambios anteriores al inicio del siguiente. No se puede descartar
+            // por su propio inicio: los cambios que esperaban en la cola al rotar llevan un instante anterior
+            if (i + 1 < ficheros.size() && inicioFichero(ficheros.get(i + 1)) < desde) {
+                continue;
+            }
+
+            try (BufferedReader lector = Files.newBufferedReader(ficheros.get(i), StandardCharsets.UTF_8)) {
+                String linea;
+                while ((linea = lector.readLine()) != null) {
+                    Matcher cabecera = CABECERA.matcher(linea);
+                    if (!cabecera.find()) {
+                        continue;
+                    }
+                    long instante = Long.parseLong(cabecera.group(1));
+                    if (instante < desde || instante > hasta) {
+                        continue;
+                    }
+                    String codigoCambio = cabecera.group(3) == null ? null : desescapar(cabecera.group(3));
+                    if (codigo != null && !codigo.equalsIgnoreCase(codigoCambio)) {
+                        // Como en la columna codigo, no se distinguen mayúsculas de minúsculas
+                        continue;
+                    }
+                    System.out.println(linea);
+                    encontrados++;
+                }
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Deshace el escapado de una cadena JSON (el contenido entre comillas, ver CambioProducto.toJson).
+     */
+    static String desescapar(String escapada) {
+        if (escapada.indexOf('\\') < 0) {
+            return escapada;
+        }
+        StringBuilder texto = new StringBuilder(escapada.length());
+        for (int i = 0; i < escapada.length(); i++) {
+            char c = escapada.charAt(i);
+            if (c != '\\' || i + 1 == escapada.length()) {
+                texto.append(c);
+                continue;
+            }
+            char escape = escapada.charAt(++i);
+            switch (escape) {
+                case 'n' -> texto.append('\n');
+                case 'r' -> texto.append('\r');
+                case 't' -> texto.append('\t');
+                case 'b' -> texto.append('\b');
+                case 'f' -> texto.append('\f');
+                case 'u' -> {
+                    texto.append((char) Integer.parseInt(escapada.substring(i + 1, i + 5), 16));
+                    i += 4;
+                }
+                default -> texto.append(escape);
+            }
+        }
+        return texto.toString();
+    }
+
+    private static long inicioFichero(Path fichero) {
+        String nombre = fichero.getFileName().toString();
+        try {
+            return Long.parseLong(nombre.substring(RegistroAuditoria.PREFIJO_FICHERO.length(),
+                    nombre.length() - RegistroAuditoria.EXTENSION_FICHERO.length()));
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static long leerInstante(String valor) {
+        if (valor.endsWith("Z") || valor.contains("+")) {
+            return Instant.parse(valor).toEpochMilli();
+        }
+        if (valor.contains("T")) {
+            return LocalDateTime.parse(valor).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        return LocalDate.parse(valor).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,299 @@
+package com.intissar.examen.Auditoria;
+
+import com.intissar.examen.Conexion.DBConnect;
+import com.intissar.examen.DAO.Transaccion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registro asíncrono de los cambios en productos.
+ * <p>
+ * Las operaciones del DAO solo encolan el cambio en una cola sin bloqueos; un hilo escritor lo vacía por lotes
+ * y escribe cada lote de una vez (group commit) en un fichero JSON Lines de solo anexado, con un único
+ * {@code force} por lote. Cuando el fichero supera el tamaño máximo se empieza uno nuevo. Opcionalmente el
+ * lote también se inserta en la tabla {@code auditoria_productos} en una sola transacción.
+ * <p>
+ * Claves de {@code configuracion.properties}: {@code auditoria.activa} (true), {@code auditoria.directorio}
+ * (auditoria), {@code auditoria.tamano.mb} (16), {@code auditoria.fsync} (true) y {@code auditoria.tabla} (false).
+ * <p>
+ * Un único gancho de cierre de la JVM cierra el registro en uso (el de {@link #getInstancia()}), de modo que
+ * los cambios encolados se escriben al terminar la aplicación. Quien cree un registro con el constructor
+ * debe cerrarlo él mismo.
+ */
+public final class RegistroAuditoria {
+    // Logger para manejar errores
+    private static final Logger LOGGER = Logger.getLogger(RegistroAuditoria.class.getName());
+
+    // Cambios máximos por lote y espera del escritor cuando la cola está vacía
+    private static final int TAMANO_LOTE = 1000;
+    private static final long ESPERA_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    static final String PREFIJO_FICHERO = "auditoria-";
+    static final String EXTENSION_FICHERO = ".jsonl";
+
+    private static volatile RegistroAuditoria instancia;
+    // Protegido por el monitor de la clase
+    private static boolean ganchoCierreRegistrado;
+
+    private final boolean activa;
+    private final Path directorio;
+    private final long tamanoMaximo;
+    private final boolean fsync;
+    private final boolean tabla;
+
+    private final ConcurrentLinkedQueue<CambioProducto> cola = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean durmiendo = new AtomicBoolean();
+    private final AtomicLong escritos = new AtomicLong();
+    private final AtomicLong lotesEscritos = new AtomicLong();
+    private final Thread escritor;
+    private volatile boolean cerrando;
+
+    private FileChannel fichero;
+    private long tamanoFichero;
+    private long inicioUltimoFichero;
+
+    /**
+     * Crea el registro con la configuración indicada y arranca el hilo escritor.
+     *
+     * @param configuracion Propiedades de configuración.
+     */
+    public RegistroAuditoria(Properties configuracion) {
+        this.activa = Boolean.parseBoolean(configuracion.getProperty("auditoria.activa", "true"));
+        this.directorio = Paths.get(configuracion.getProperty("auditoria.directorio", "auditoria"));
+        this.tamanoMaximo = Long.parseLong(configuracion.getProperty("auditoria.tamano.mb", "16").trim()) * 1024 * 1024;
+        this.fsync = Boolean.parseBoolean(configuracion.getProperty("auditoria.fsync", "true"));
+        this.tabla = Boolean.parseBoolean(configuracion.getProperty("auditoria.tabla", "false"));
+
+        if (activa) {
+            escritor = new Thread(this::escribir, "auditoria-escritor");
+            escritor.setDaemon(true);
+            escritor.start();
+        } else {
+            escritor = null;
+        }
+    }
+
+    /**
+     * Devuelve el registro de la aplicación, creándolo la primera vez a partir de {@code configuracion.properties}.
+     *
+     * @return El registro de auditoría.
+     */
+    public static RegistroAuditoria getInstancia() {
+        RegistroAuditoria actual = instancia;
+        if (actual == null) {
+            synchronized (RegistroAuditoria.class) {
+                if (instancia == null) {
+                    instancia = new RegistroAuditoria(DBConnect.loadConfiguration());
+                    registrarGanchoCierre();
+                }
+                actual = instancia;
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * Sustituye el registro en uso, cerrando el anterior.
+     *
+     * @param configuracion Propiedades de configuración del nuevo registro.
+     */
+    public static void configurar(Properties configuracion) {
+        synchronized (RegistroAuditoria.class) {
+            if (instancia != null) {
+                instancia.cerrar();
+            }
+            instancia = new RegistroAuditoria(configuracion);
+            registrarGanchoCierre();
+        }
+    }
+
+    /**
+     * Registra, solo la primera vez, el gancho de la JVM que cierra el registro en uso al terminar.
+     * Se llama con el monitor de la clase.
+     */
+    private static void registrarGanchoCierre() {
+        if (!ganchoCierreRegistrado) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                RegistroAuditoria actual = instancia;
+                if (actual != null) {
+                    actual.cerrar();
+                }
+            }, "auditoria-cierre"));
+            ganchoCierreRegistrado = true;
+        }
+    }
+
+    /**
+     * @return true si la auditoría está activa; si no, no hace falta capturar los valores previos.
+     */
+    public boolean isActiva() {
+        return activa;
+    }
+
+    /**
+     * @return Cambios escritos en el fichero desde el arranque.
+     */
+    public long getEscritos() {
+        return escritos.get();
+    }
+
+    /**
+     * @return Lotes escritos en el fichero desde el arranque, cada uno con una sola escritura y un solo {@code force}.
+     */
+    public long getLotesEscritos() {
+        return lotesEscritos.get();
+    }
+
+    /**
+     * Encola un cambio para escribirlo. No bloquea ni hace E/S en el hilo que llama.
+     *
+     * @param cambio Cambio a registrar.
+     */
+    public void registrar(CambioProducto cambio) {
+        if (!activa) {
+            return;
+        }
+        cola.add(cambio);
+        if (durmiendo.compareAndSet(true, false)) {
+            LockSupport.unpark(escritor);
+        }
+    }
+
+    /**
+     * Escribe los cambios pendientes y detiene el hilo escritor.
+     */
+    public void cerrar() {
+        if (escritor == null || cerrando) {
+            return;
+        }
+        cerrando = true;
+        LockSupport.unpark(escritor);
+        try {
+            escritor.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Bucle del hilo escritor: agrupa los cambios encolados y los escribe por lotes.
+     */
+    private void escribir() {
+        List<CambioProducto> lote = new ArrayList<>(TAMANO_LOTE);
+        while (true) {
+            CambioProducto cambio;
+            while (lote.size() < TAMANO_LOTE && (cambio = cola.poll()) != null) {
+                lote.add(cambio);
+            }
+
+            if (lote.isEmpty()) {
+                if (cerrando) {
+                    break;
+                }
+                durmiendo.set(true);
+                // Se vuelve a mirar la cola por si llegó un cambio antes de marcar que el escritor duerme
+                if (cola.isEmpty() && !cerrando) {
+                    LockSupport.parkNanos(this, ESPERA_NANOS);
+                }
+                durmiendo.set(false);
+                continue;
+            }
+
+            escribirFichero(lote);
+            if (tabla) {
+                escribirTabla(lote);
+            }
+            lote.clear();
+        }
+        cerrarFichero();
+    }
+
+    private void escribirFichero(List<CambioProducto> lote) {
+        StringBuilder texto = new StringBuilder(lote.size() * 160);
+        for (CambioProducto cambio : lote) {
+            texto.append(cambio.toJson()).append('\n');
+        }
+        byte[] bytes = texto.toString().getBytes(StandardCharsets.UTF_8);
+
+        try {
+            if (fichero == null || tamanoFichero + bytes.length > tamanoMaximo) {
+                rotar();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                fichero.write(buffer);
+            }
+            if (fsync) {
+                fichero.force(false);
+            }
+            tamanoFichero += bytes.length;
+            escritos.addAndGet(lote.size());
+            lotesEscritos.incrementAndGet();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "No se pudieron escribir " + lote.size() + " cambios en el registro de auditoría", e);
+        }
+    }
+
+    /**
+     * Cierra el fichero actual y abre uno nuevo cuyo nombre indica el instante en que empieza.
+     * Si la rotación anterior fue en el mismo milisegundo, se toma el siguiente para no reabrir el mismo fichero.
+     */
+    private void rotar() throws IOException {
+        cerrarFichero();
+        Files.createDirectories(directorio);
+        inicioUltimoFichero = Math.max(System.currentTimeMillis(), inicioUltimoFichero + 1);
+        Path nuevo = directorio.resolve(String.format("%s%013d%s", PREFIJO_FICHERO, inicioUltimoFichero, EXTENSION_FICHERO));
+        fichero = FileChannel.open(nuevo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        tamanoFichero = fichero.size();
+    }
+
+    private void cerrarFichero() {
+        if (fichero != null) {
+            try {
+                fichero.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "No se pudo cerrar el fichero de auditoría", e);
+            }
+            fichero = null;
+        }
+    }
+
+    private void escribirTabla(List<CambioProducto> lote) {
+        String consulta = "INSERT INTO auditoria_productos (instante, usuario, operacion, codigo, antes, despues) VALUES (?, ?, ?, ?, ?, ?)";
+        try (Transaccion tx = new Transaccion();
+             PreparedStatement stmt = tx.getConnection().prepareStatement(consulta)) {
+            for (CambioProducto cambio : lote) {
+                stmt.setTimestamp(1, new Timestamp(cambio.getInstante()));
+                stmt.setString(2, cambio.getUsuario());
+                stmt.setString(3, cambio.getOperacion().name());
+                stmt.setString(4, cambio.getCodigo());
+                stmt.setString(5, cambio.getAntes() == null ? null : CambioProducto.estadoJson(cambio.getAntes()));
+                stmt.setString(6, cambio.getDespues() == null ? null : CambioProducto.estadoJson(cambio.getDespues()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            tx.confirmar();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudieron insertar " + lote.size() + " cambios en auditoria_productos", e);
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package com.intissar.examen.Carga;
+
+import com.intissar.examen.Auditoria.RegistroAuditoria;
+import com.intissar.examen.Conexion.RastreoRecursos;
+import com.intissar.examen.Conexion.Topologia;
+import com.intissar.examen.DAO.GobernadorEjecucion;
+import com.intissar.examen.DAO.ProductoDAO;
+import com.intissar.examen.DAO.Transaccion;
+import com.intissar.examen.Modelo.Producto;
+import com.intissar.examen.OpcionesLinea;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generador de carga sin interfaz gráfica para la capa de datos de productos.
+ * <p>
+ * Lanza muchos clientes, cada uno en un hilo virtual, que ejecutan contra {@link ProductoDAO} una mezcla
+ * configurable de consultas, listados, inserciones, actualizaciones, borrados y subidas de imagen.
+ * Cada intervalo muestra el rendimiento, los percentiles de latencia y la tasa de errores por operación,
+ * junto con las conexiones, sentencias y ResultSets abiertos, para detectar fugas en pruebas de larga duración.
+ * <p>
+ * La columna "nulo/false" cuenta las operaciones que devolvieron null o false sin lanzar excepción. Los métodos
+ * sin transacción de {@link ProductoDAO} devuelven esos valores tanto cuando no hay nada que modificar como cuando
+ * se tragan un error SQL, por lo que no se cuentan como correctas ni como errores; un número alto indica errores
+ * ocultos (el detalle sale en la salida de error). Una inserción que devuelve -1 sí cuenta como error, porque su
+ * código está reservado para ese cliente y no puede estar repetido. Las subidas de imagen usan la API transaccional,
+ * que sí propaga los errores.
+ * <p>
+ * Cada intervalo se calcula con el tiempo que ha durado realmente, de modo que el último, normalmente más corto,
+ * no aparece con un rendimiento menor del real.
+ * <p>
+ * Por defecto trabaja sobre una base de datos H2 en memoria inicializada con {@code examen1.sql}.
+ * Opciones (todas con el formato {@code --clave=valor}, ver {@link OpcionesLinea}):
+ * <ul>
+ *     <li>{@code clientes} (50), {@code duracion} en segundos (60), {@code intervalo} en segundos (5),
+ *     {@code pausa} entre operaciones en milisegundos (0).</li>
+ *     <li>{@code mezcla}: pesos por operación, por ejemplo {@code consulta:50,listado:5,insercion:10,actualizacion:20,eliminacion:10,imagen:5}.</li>
+ *     <li>{@code url}, {@code usuario}, {@code password}: base de datos de destino.</li>
+ *     <li>{@code productos}: productos sintéticos añadidos a los del script (1000).</li>
+ *     <li>{@code semilla}: {@code false} para no inicializar la base de datos.</li>
+ *     <li>{@code config}: fichero de propiedades con claves de réplicas, del gobernador o de la auditoría.</li>
+ * </ul>
+ */
+public class GeneradorCarga {
+    private static final String URL_POR_DEFECTO = "jdbc:h2:mem:carga;MODE=MariaDB;DB_CLOSE_DELAY=-1";
+    private static final String MEZCLA_POR_DEFECTO = "consulta:50,listado:5,insercion:10,actualizacion:20,eliminacion:10,imagen:5";
+    private static final String IMAGEN = "/com/intissar/examen/Imagenes/bollos.png";
+
+    /**
+     * Operaciones que puede ejecutar un cliente.
+     */
+    enum Operacion {
+        CONSULTA, LISTADO, INSERCION, ACTUALIZACION, ELIMINACION, IMAGEN
+    }
+
+    /**
+     * Estadísticas de una operación: las del intervalo en curso o las extraídas de un intervalo ya terminado.
+     */
+    private static class Estadistica {
+        final HistogramaLatencias latencias = new HistogramaLatencias();
+        final LongAdder correctas = new LongAdder();
+        final LongAdder sinEfecto = new LongAdder();
+        final LongAdder errores = new LongAdder();
+
+        void acumular(Estadistica otra) {
+            latencias.acumular(otra.latencias);
+            correctas.add(otra.correctas.sum());
+            sinEfecto.add(otra.sinEfecto.sum());
+            errores.add(otra.errores.sum());
+        }
+
+        /**
+         * Extrae lo registrado desde la última extracción. Cada contador se lee y se pone a cero de una vez,
+         * así que lo que registran los clientes mientras tanto pasa al intervalo siguiente en vez de perderse.
+         */
+        Estadistica extraer() {
+            Estadistica extraida = new Estadistica();
+            extraida.latencias.acumular(latencias.extraer());
+            extraida.correctas.add(correctas.sumThenReset());
+            extraida.sinEfecto.add(sinEfecto.sumThenReset());
+            extraida.errores.add(errores.sumThenReset());
+            return extraida;
+        }
+
+        long total() {
+            return correctas.sum() + sinEfecto.sum() + errores.sum();
+        }
+    }
+
+    private final int clientes;
+    private final long duracionNanos;
+    private final long intervaloSegundos;
+    private final long pausaMs;
+    private final Operacion[] ruleta;
+    private final List<String> codigos;
+    private final byte[] imagen;
+
+    private final ConcurrentLinkedQueue<String> insertados = new ConcurrentLinkedQueue<>();
+    // Códigos de inserción ya borrados, que se reutilizan antes de generar otros nuevos
+    private final ConcurrentLinkedQueue<String> libres = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger siguienteCodigo = new AtomicInteger();
+    private final Map<String, LongAdder> tiposError = new ConcurrentHashMap<>();
+    private final Map<Operacion, Estadistica> ventana = nuevaVentana();
+    private final Map<Operacion, Estadistica> acumulado = nuevaVentana();
+    private volatile boolean parar;
+    private long inicioNanos;
+    private long ultimoInformeNanos;
+
+    private GeneradorCarga(int clientes, long duracionSegundos, long intervaloSegundos, long pausaMs,
+                           Operacion[] ruleta, List<String> codigos, byte[] imagen) {
+        this.clientes = clientes;
+        this.duracionNanos = TimeUnit.SECONDS.toNanos(duracionSegundos);
+        this.intervaloSegundos = intervaloSegundos;
+        this.pausaMs = pausaMs;
+        this.ruleta = ruleta;
+        this.codigos = codigos;
+        this.imagen = imagen;
+    }
+
+    /**
+     * Punto de entrada del generador de carga.
+     *
+     * @param args Opciones con el formato {@code --clave=valor}.
+     * @throws Exception Si falla la preparación de la prueba.
+     */
+    public static void main(String[] args) throws Exception {
+        OpcionesLinea opciones = OpcionesLinea.leer(args);
+
+        Properties configuracion = new Properties();
+        if (opciones.contiene("config")) {
+            try (FileInputStream entrada = new FileInputStream(opciones.obligatoria("config"))) {
+                configuracion.load(entrada);
+            }
+        }
+        String url = opciones.texto("url", configuracion.getProperty("url", URL_POR_DEFECTO));
+        configuracion.setProperty("url", url);
+        if (opciones.contiene("usuario")) {
+            configuracion.setProperty("user", opciones.obligatoria("usuario"));
+        }
+        if (opciones.contiene("password")) {
+            configuracion.setProperty("password", opciones.obligatoria("password"));
+        }
+
+        int productos = opciones.entero("productos", 1000);
+        if (opciones.booleano("semilla", true)) {
+            System.out.println("Inicializando " + url + " con examen1.sql y " + productos + " productos sintéticos...");
+            InicializadorBaseDatos.inicializar(url, configuracion.getProperty("user"),
+                    configuracion.getProperty("password"), productos);
+        }
+
+        RastreoRecursos.activar();
+        Topologia.configurar(configuracion);
+        GobernadorEjecucion.configurar(configuracion);
+        RegistroAuditoria.configurar(configuracion);
+
+        List<String> codigos = new ArrayList<>();
+        for (Producto producto : ProductoDAO.obtenerListadoProductos()) {
+            codigos.add(producto.getCodigo());
+        }
+        if (codigos.isEmpty()) {
+            throw new IllegalStateException("La tabla productos está vacía: no hay códigos sobre los que operar");
+        }
+
+        GeneradorCarga generador = new GeneradorCarga(
+                opciones.entero("clientes", 50),
+                opciones.largo("duracion", 60),
+                opciones.largo("intervalo", 5),
+                opciones.largo("pausa", 0),
+                construirRuleta(opciones.texto("mezcla", MEZCLA_POR_DEFECTO)),
+                codigos,
+                leerImagen());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> generador.parar = true));
+        generador.ejecutar();
+    }
+
+    /**
+     * Lanza los clientes, informa por intervalos y muestra el resumen final.
+     *
+     * @throws InterruptedException Si se interrumpe la espera de los clientes.
+     */
+    private void ejecutar() throws InterruptedException {
+        System.out.printf(Locale.ROOT, "%d clientes durante %d s, %d productos en catálogo%n",
+                clientes, TimeUnit.NANOSECONDS.toSeconds(duracionNanos), codigos.size());
+
+        ScheduledExecutorService informador = Executors.newSingleThreadScheduledExecutor();
+        inicioNanos = System.nanoTime();
+        ultimoInformeNanos = inicioNanos;
+        informador.scheduleAtFixedRate(() -> informarIntervalo(false), intervaloSegundos, intervaloSegundos, TimeUnit.SECONDS);
+
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clientes; i++) {
+                hilos.submit(this::cliente);
+            }
+        }
+
+        informador.shutdown();
+        informador.awaitTermination(intervaloSegundos, TimeUnit.SECONDS);
+        informarIntervalo(true);
+        informarResumen();
+    }
+
+    /**
+     * Bucle de un cliente virtual.
+     */
+    private void cliente() {
+        long fin = inicioNanos + duracionNanos;
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        while (!parar && System.nanoTime() < fin) {
+            Operacion operacion = ruleta[aleatorio.nextInt(ruleta.length)];
+            long inicio = System.nanoTime();
+            Estadistica estadistica = ventana.get(operacion);
+            try {
+                boolean efecto = ejecutarOperacion(operacion, aleatorio);
+                (efecto ? estadistica.correctas : estadistica.sinEfecto).increment();
+            } catch (Exception e) {
+                estadistica.errores.increment();
+                tiposError.computeIfAbsent(operacion + ": " + e.getClass().getSimpleName() + ": " + e.getMessage(),
+                        clave -> new LongAdder()).increment();
+            }
+            estadistica.latencias.registrar(System.nanoTime() - inicio);
+
+            if (pausaMs > 0) {
+                try {
+                    Thread.sleep(pausaMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ejecuta una operación contra el DAO.
+     *
+     * @return true si la operación tuvo efecto (encontró o modificó algo).
+     */
+    private boolean ejecutarOperacion(Operacion operacion, ThreadLocalRandom aleatorio) throws SQLException {
+        switch (operacion) {
+            case CONSULTA:
+                return ProductoDAO.obtenerProductoPorCodigo(codigoAleatorio(aleatorio)) != null;
+            case LISTADO:
+                return !ProductoDAO.obtenerListadoProductos().isEmpty();
+            case INSERCION: {
+                String codigo = reservarCodigo();
+                if (codigo == null) {
+                    return false;
+                }
+                boolean insertado = false;
+                try {
+                    insertado = ProductoDAO.insertarProducto(
+                            new Producto(codigo, "CARGA", precioAleatorio(aleatorio), true, (Blob) null)) != -1;
+                } finally {
+                    (insertado ? insertados : libres).add(codigo);
+                }
+                if (!insertado) {
+                    // El código reservado no puede existir: un -1 es un error SQL que el DAO se ha tragado
+                    throw new SQLException("La inserción de " + codigo + " devolvió -1");
+                }
+                return true;
+            }
+            case ACTUALIZACION:
+                return ProductoDAO.actualizarProducto(new Producto(codigoAleatorio(aleatorio), "CARGA ACTUALIZADO",
+                        precioAleatorio(aleatorio), aleatorio.nextBoolean(), (Blob) null));
+            case ELIMINACION: {
+                String codigo = insertados.poll();
+                if (codigo == null) {
+                    return false;
+                }
+                boolean eliminado = false;
+                try {
+                    eliminado = ProductoDAO.eliminarProducto(codigo);
+                } finally {
+                    (eliminado ? libres : insertados).add(codigo);
+                }
+                return eliminado;
+            }
+            case IMAGEN: {
+                // La imagen se envía como flujo binario: un Blob creado en otra conexión ya cerrada no sirve
+                String codigo = codigoAleatorio(aleatorio);
+                return GobernadorEjecucion.getInstancia().ejecutar(GobernadorEjecucion.TipoOperacion.ESCRITURA,
+                        () -> Transaccion.ejecutar(tx -> ProductoDAO.actualizarImagenes(tx, Map.of(codigo, imagen))[0] != 0));
+            }
+            default:
+                throw new IllegalStateException("Operación desconocida: " + operacion);
+        }
+    }
+
+    /**
+     * Obtiene un código libre para una inserción: uno ya borrado o, si no hay, uno nuevo.
+     * Los códigos empiezan por 'Z' para no chocar con los del script ni con los sintéticos.
+     *
+     * @return El código, o null si se han agotado los códigos de cinco caracteres y no hay ninguno libre.
+     */
+    private String reservarCodigo() {
+        String codigo = libres.poll();
+        if (codigo != null) {
+            return codigo;
+        }
+        int numero = siguienteCodigo.getAndUpdate(n -> Math.min(n + 1, InicializadorBaseDatos.CODIGOS_SINTETICOS));
+        if (numero >= InicializadorBaseDatos.CODIGOS_SINTETICOS) {
+            return null;
+        }
+        return "Z" + InicializadorBaseDatos.codigoSintetico(numero).substring(1);
+    }
+
+    private String codigoAleatorio(ThreadLocalRandom aleatorio) {
+        return codigos.get(aleatorio.nextInt(codigos.size()));
+    }
+
+    private static float precioAleatorio(ThreadLocalRandom aleatorio) {
+        return Math.round(aleatorio.nextFloat(0.5f, 50f) * 100) / 100f;
+    }
+
+    /**
+     * Muestra las estadísticas del intervalo que acaba de terminar y empieza uno nuevo.
+     * El rendimiento se divide entre lo que ha durado el intervalo, que al final de la prueba puede ser
+     * menos de un intervalo completo; si ese último tramo no tiene operaciones, no se muestra.
+     *
+     * @param ultimo true si es el tramo final, tras terminar todos los clientes.
+     */
+    private synchronized void informarIntervalo(boolean ultimo) {
+        long ahora = System.nanoTime();
+        double segundos = (ahora - ultimoInformeNanos) / 1e9;
+        ultimoInformeNanos = ahora;
+
+        Map<Operacion, Estadistica> terminada = new EnumMap<>(Operacion.class);
+        long total = 0;
+        for (Map.Entry<Operacion, Estadistica> entrada : ventana.entrySet()) {
+            Estadistica extraida = entrada.getValue().extraer();
+            terminada.put(entrada.getKey(), extraida);
+            acumulado.get(entrada.getKey()).acumular(extraida);
+            total += extraida.total();
+        }
+        if (total == 0 && ultimo) {
+            return;
+        }
+
+        System.out.printf(Locale.ROOT, "%n--- t=%.1fs (%.1f s) ---%n", (ahora - inicioNanos) / 1e9, segundos);
+        imprimirTabla(terminada, segundos);
+
+        Runtime runtime = Runtime.getRuntime();
+        long rechazadas = 0;
+        for (GobernadorEjecucion.TipoOperacion tipo : GobernadorEjecucion.TipoOperacion.values()) {
+            rechazadas += GobernadorEjecucion.getInstancia().getRechazadas(tipo);
+        }
+        System.out.printf(Locale.ROOT,
+                "conexiones abiertas=%d (total %d) sentencias abiertas=%d resultsets abiertos=%d | heap=%d MB hilos=%d | rechazos gobernador=%d%n",
+                RastreoRecursos.getConexionesAbiertas(), RastreoRecursos.getConexionesTotales(),
+                RastreoRecursos.getSentenciasAbiertas(), RastreoRecursos.getResultadosAbiertos(),
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024), Thread.activeCount(), rechazadas);
+    }
+
+    /**
+     * Muestra el resumen de toda la prueba y comprueba que no quedan recursos abiertos.
+     */
+    private void informarResumen() {
+        System.out.printf(Locale.ROOT, "%n=== Resumen (%d s) ===%n", TimeUnit.NANOSECONDS.toSeconds(duracionNanos));
+        imprimirTabla(acumulado, (ultimoInformeNanos - inicioNanos) / 1e9);
+
+        if (!tiposError.isEmpty()) {
+            System.out.println("Errores más frecuentes:");
+            tiposError.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                    .limit(10)
+                    .forEach(e -> System.out.printf(Locale.ROOT, "  %6d  %s%n", e.getValue().sum(), e.getKey()));
+        }
+
+        long conexiones = RastreoRecursos.getConexionesAbiertas();
+        long sentencias = RastreoRecursos.getSentenciasAbiertas();
+        long resultados = RastreoRecursos.getResultadosAbiertos();
+        if (conexiones + sentencias + resultados > 0) {
+            System.out.printf(Locale.ROOT,
+                    "POSIBLE FUGA: quedan %d conexiones, %d sentencias y %d resultsets abiertos sin clientes activos%n",
+                    conexiones, sentencias, resultados);
+        } else {
+            System.out.println("Sin fugas: todos los recursos JDBC se han cerrado.");
+        }
+    }
+
+    private static void imprimirTabla(Map<Operacion, Estadistica> estadisticas, double segundos) {
+        System.out.printf(Locale.ROOT, "%-14s %9s %9s %9s %9s %9s %9s %8s%n",
+                "operación", "op/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "nulo/false", "errores");
+        for (Map.Entry<Operacion, Estadistica> entrada : estadisticas.entrySet()) {
+            Estadistica e = entrada.getValue();
+            long total = e.total();
+            if (total == 0) {
+                continue;
+            }
+            System.out.printf(Locale.ROOT, "%-14s %9.1f %9.2f %9.2f %9.2f %9.2f %9d %7.2f%%%n",
+                    entrada.getKey(), total / segundos,
+                    e.latencias.percentil(50) / 1000.0, e.latencias.percentil(95) / 1000.0,
+                    e.latencias.percentil(99) / 1000.0, e.latencias.percentil(99.9) / 1000.0,
+                    e.sinEfecto.sum(), 100.0 * e.errores.sum() / total);
+        }
+    }
+
+    private static Map<Operacion, Estadistica> nuevaVentana() {
+        Map<Operacion, Estadistica> mapa = new EnumMap<>(Operacion.class);
+        for (Operacion operacion : Operacion.values()) {
+            mapa.put(operacion, new Estadistica());
+        }
+        return mapa;
+    }
+
+    /**
+     * Convierte la mezcla de operaciones en una ruleta de cien posiciones proporcional a los pesos.
+     */
+    static Operacion[] construirRuleta(String mezcla) {
+        Map<Operacion, Integer> pesos = new EnumMap<>(Operacion.class);
+        int total = 0;
+        for (String parte : mezcla.split(",")) {
+            String[] claveValor = parte.trim().split(":");
+            if (claveValor.length != 2) {
+                throw new IllegalArgumentException("Mezcla no válida: " + parte);
+            }
+            int peso = Integer.parseInt(claveValor[1].trim());
+            pesos.merge(Operacion.valueOf(claveValor[0].trim().toUpperCase(Locale.ROOT)), peso, Integer::sum);
+            total += peso;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("La mezcla debe tener algún peso positivo: " + mezcla);
+        }
+
+        List<Operacion> ruleta = new ArrayList<>();
+        for (Map.Entry<Operacion, Integer> peso : pesos.entrySet()) {
+            long posiciones = Math.max(peso.getValue() > 0 ? 1 : 0, Math.round(100.0 * peso.getValue() / total));
+            for (int i = 0; i < posiciones; i++) {
+                ruleta.add(peso.getKey());
+            }
+        }
+        return ruleta.toArray(new Operacion[0]);
+    }
+
+    /**
+     * Lee la imagen de ejemplo de los recursos para las subidas de imagen.
+     */
+    private static byte[] leerImagen() throws IOException {
+        try (InputStream entrada = GeneradorCarga.class.getResourceAsStream(IMAGEN)) {
+            if (entrada == null) {
+                throw new IOException("No se encuentra la imagen " + IMAGEN);
+            }
+            return entrada.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.intissar.examen.Carga;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias sin bloqueos, con cubetas logarítmicas en microsegundos.
+ * Cada potencia de dos se divide en cuatro cubetas, lo que da un error relativo máximo del 25 %
+ * en los percentiles con un tamaño fijo y pequeño, adecuado para pruebas de larga duración.
+ */
+public class HistogramaLatencias {
+    // Cubetas exactas para 0..3 µs más cuatro por cada potencia de dos hasta 2^63
+    private static final int CUBETAS = 4 + 62 * 4;
+
+    private final AtomicLongArray cuentas = new AtomicLongArray(CUBETAS);
+
+    /**
+     * Registra una muestra.
+     *
+     * @param nanos Latencia en nanosegundos.
+     */
+    public void registrar(long nanos) {
+        cuentas.incrementAndGet(indice(Math.max(0, nanos / 1000)));
+    }
+
+    /**
+     * Suma a este histograma las muestras de otro.
+     *
+     * @param otro Histograma a acumular.
+     */
+    public void acumular(HistogramaLatencias otro) {
+        for (int i = 0; i < CUBETAS; i++) {
+            long cuenta = otro.cuentas.get(i);
+            if (cuenta != 0) {
+                cuentas.addAndGet(i, cuenta);
+            }
+        }
+    }
+
+    /**
+     * Devuelve las muestras registradas hasta ahora y deja el histograma vacío. Cada cubeta se vacía de forma
+     * atómica, así que una muestra registrada a la vez queda en el resultado o en el histograma, nunca se pierde.
+     *
+     * @return Histograma con las muestras extraídas.
+     */
+    public HistogramaLatencias extraer() {
+        HistogramaLatencias extraido = new HistogramaLatencias();
+        for (int i = 0; i < CUBETAS; i++) {
+            if (cuentas.get(i) != 0) {
+                extraido.cuentas.set(i, cuentas.getAndSet(i, 0));
+            }
+        }
+        return extraido;
+    }
+
+    /**
+     * @return Número total de muestras.
+     */
+    public long getTotal() {
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            total += cuentas.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Calcula un percentil aproximado.
+     *
+     * @param percentil Percentil entre 0 y 100.
+     * @return Latencia del percentil en microsegundos (límite superior de su cubeta), o 0 si no hay muestras.
+     */
+    public long percentil(double percentil) {
+        long total = getTotal();
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(total * percentil / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += cuentas.get(i);
+            if (acumulado >= objetivo) {
+                return limiteSuperior(i);
+            }
+        }
+        return limiteSuperior(CUBETAS - 1);
+    }
+
+    private static int indice(long micros) {
+        if (micros < 4) {
+            return (int) micros;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(micros);
+        int subcubeta = (int) ((micros >>> (exponente - 2)) & 3);
+        return 4 + (exponente - 2) * 4 + subcubeta;
+    }
+
+    private static long limiteSuperior(int indice) {
+        if (indice < 4) {
+            return indice;
+        }
+        int exponente = (indice - 4) / 4 + 2;
+        int subcubeta = (indice - 4) % 4;
+        return ((5L + subcubeta) << (exponente - 2)) - 1;
+    }
+}
@@ -0,0 +1,139 @@
+package com.intissar.examen.Carga;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Prepara una base de datos (normalmente embebida) para las pruebas de carga a partir del script
+ * {@code SQL/examen1.sql} de la aplicación.
+ * <p>
+ * Se omiten las sentencias propias de MariaDB que no afectan a los datos (esquemas, USE, SET,
+ * control de transacciones) y las opciones de tabla, para que el script funcione también en
+ * motores embebidos en modo de compatibilidad con MySQL/MariaDB. En H2 se activa además
+ * {@code IGNORECASE}, para que las columnas de texto no distingan mayúsculas de minúsculas
+ * como la colación {@code latin1_spanish_ci} del script.
+ */
+public class InicializadorBaseDatos {
+    private static final String SCRIPT = "/com/intissar/examen/SQL/examen1.sql";
+    // Números de producto que caben en un código sintético: cuatro caracteres en base 36
+    static final int CODIGOS_SINTETICOS = 36 * 36 * 36 * 36;
+
+    private InicializadorBaseDatos() {
+    }
+
+    /**
+     * Ejecuta el script de la aplicación y añade productos sintéticos hasta alcanzar el tamaño pedido.
+     *
+     * @param url URL JDBC de la base de datos.
+     * @param usuario Usuario de conexión (puede ser null).
+     * @param password Contraseña de conexión (puede ser null).
+     * @param productosAdicionales Número de productos sintéticos a insertar además de los del script,
+     *                             como mucho {@link #CODIGOS_SINTETICOS}.
+     * @throws SQLException Si falla alguna sentencia.
+     * @throws IOException Si no se puede leer el script.
+     * @throws IllegalArgumentException Si se piden más productos sintéticos de los que caben en los códigos.
+     */
+    public static void inicializar(String url, String usuario, String password, int productosAdicionales)
+            throws SQLException, IOException {
+        // Se comprueba antes de borrar nada: un código más largo no cabe en la columna varchar(5)
+        if (productosAdicionales > CODIGOS_SINTETICOS) {
+            throw new IllegalArgumentException("Como mucho se pueden generar " + CODIGOS_SINTETICOS
+                    + " productos sintéticos (códigos de cinco caracteres): " + productosAdicionales);
+        }
+        Properties credenciales = new Properties();
+        if (usuario != null) {
+            credenciales.setProperty("user", usuario);
+        }
+        if (password != null) {
+            credenciales.setProperty("password", password);
+        }
+
+        try (Connection conn = DriverManager.getConnection(url, credenciales);
+             Statement stmt = conn.createStatement()) {
+            if ("H2".equals(conn.getMetaData().getDatabaseProductName())) {
+                // Solo afecta a las tablas que se crean después
+                stmt.execute("SET IGNORECASE TRUE");
+            }
+            stmt.execute("DROP TABLE IF EXISTS auditoria_productos");
+            stmt.execute("DROP TABLE IF EXISTS productos");
+            for (String sentencia : leerScript().split(";")) {
+                String adaptada = adaptar(sentencia);
+                if (adaptada != null) {
+                    stmt.execute(adaptada);
+                }
+            }
+            if (productosAdicionales > 0) {
+                insertarSinteticos(conn, productosAdicionales);
+            }
+        }
+    }
+
+    /**
+     * Genera el código de un producto sintético. Empiezan por 'S' para no chocar con los del script.
+     *
+     * @param numero Número de producto, menor que {@link #CODIGOS_SINTETICOS}.
+     * @return Código de cinco caracteres.
+     * @throws IllegalArgumentException Si el número no cabe en un código de cinco caracteres.
+     */
+    static String codigoSintetico(int numero) {
+        if (numero < 0 || numero >= CODIGOS_SINTETICOS) {
+            throw new IllegalArgumentException("Número de producto sintético fuera de rango: " + numero);
+        }
+        String base36 = Integer.toString(numero, 36).toUpperCase(Locale.ROOT);
+        return "S" + "0000".substring(Math.min(4, base36.length())) + base36;
+    }
+
+    private static String leerScript() throws IOException {
+        try (InputStream entrada = InicializadorBaseDatos.class.getResourceAsStream(SCRIPT)) {
+            if (entrada == null) {
+                throw new IOException("No se encuentra el script " + SCRIPT);
+            }
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String adaptar(String sentencia) {
+        String limpia = sentencia.strip();
+        String mayusculas = limpia.toUpperCase(Locale.ROOT);
+        if (limpia.isEmpty() || mayusculas.startsWith("DROP SCHEMA") || mayusculas.startsWith("CREATE SCHEMA")
+                || mayusculas.startsWith("USE ") || mayusculas.startsWith("SET ")
+                || mayusculas.startsWith("START TRANSACTION") || mayusculas.equals("COMMIT")) {
+            return null;
+        }
+        if (mayusculas.startsWith("CREATE TABLE")) {
+            // Se eliminan las opciones de tabla (ENGINE, CHARACTER SET...) tras el último paréntesis
+            return limpia.substring(0, limpia.lastIndexOf(')') + 1);
+        }
+        return limpia;
+    }
+
+    private static void insertarSinteticos(Connection conn, int cantidad) throws SQLException {
+        String consulta = "INSERT INTO productos (codigo, nombre, precio, disponible) VALUES (?, ?, ?, ?)";
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(consulta)) {
+            for (int i = 0; i < cantidad; i++) {
+                stmt.setString(1, codigoSintetico(i));
+                stmt.setString(2, "PRODUCTO " + i);
+                stmt.setFloat(3, 0.5f + (i % 2000) / 100f);
+                stmt.setInt(4, i % 3 == 0 ? 0 : 1);
+                stmt.addBatch();
+                if (i % 1000 == 999) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -7,41 +7,190 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransientException;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class DBConnect {
     private final Connection connection;
+    // Réplica a la que está conectada, o null si es el primario
+    private final Topologia.Nodo replica;
+    private final int timeoutConexionMs;
+    private final int timeoutSocketMs;
 
     // Logger para manejar errores
     private static final Logger LOGGER = Logger.getLogger(DBConnect.class.getName());
 
+    // Timeout de conexión de las aperturas que no indican uno propio
+    private static final int TIMEOUT_CONEXION_POR_DEFECTO_MS = 10000;
+
+    /**
+     * Consulta de solo lectura que se ejecuta sobre una conexión y se puede repetir en otra.
+     *
+     * @param <T> Tipo del resultado.
+     */
+    @FunctionalInterface
+    public interface Lectura<T> {
+        /**
+         * Ejecuta la consulta.
+         *
+         * @param conexion Conexión sobre la que se ejecuta.
+         * @return Resultado de la consulta.
+         * @throws SQLException en caso de error SQL.
+         */
+        T leer(Connection conexion) throws SQLException;
+    }
+
     /**
-     * Constructor que inicializa la conexión con la base de datos.
+     * Constructor que inicializa la conexión con el nodo primario de la base de datos.
+     * Es la conexión que deben usar las escrituras; quien escriba debe llamar a
+     * {@link Topologia#registrarEscritura()} al confirmar, para que las lecturas del mismo
+     * cliente se dirijan al primario durante un breve periodo.
      *
      * @throws SQLException Si hay errores al establecer la conexión.
      */
     public DBConnect() throws SQLException {
-        Properties configuracion = loadConfiguration();
+        this(TIMEOUT_CONEXION_POR_DEFECTO_MS, 0);
+    }
+
+    /**
+     * Constructor que inicializa la conexión con el nodo primario limitando el tiempo de conexión
+     * y de espera de respuestas del servidor.
+     *
+     * @param timeoutConexionMs Tiempo máximo para establecer la conexión, en milisegundos.
+     * @param timeoutSocketMs Tiempo máximo de espera de cada respuesta del servidor, en milisegundos (0 sin límite).
+     * @throws SQLException Si hay errores al establecer la conexión.
+     */
+    public DBConnect(int timeoutConexionMs, int timeoutSocketMs) throws SQLException {
+        Topologia topologia = Topologia.getInstancia();
+        this.connection = abrirConexion(topologia, topologia.getPrimario().getUrl(), timeoutConexionMs, timeoutSocketMs);
+        this.replica = null;
+        this.timeoutConexionMs = timeoutConexionMs;
+        this.timeoutSocketMs = timeoutSocketMs;
+    }
+
+    private DBConnect(Connection connection, Topologia.Nodo replica, int timeoutConexionMs, int timeoutSocketMs) {
+        this.connection = connection;
+        this.replica = replica;
+        this.timeoutConexionMs = timeoutConexionMs;
+        this.timeoutSocketMs = timeoutSocketMs;
+    }
+
+    /**
+     * Abre una conexión para operaciones de solo lectura.
+     * Se usa una réplica sana según la estrategia configurada; si no hay réplicas disponibles,
+     * todas fallan o el cliente acaba de escribir, se usa el primario. Las consultas conviene ejecutarlas
+     * con {@link #leer(Lectura)}, que pasa al primario si la réplica falla al consultar.
+     *
+     * @return Conexión para lectura.
+     * @throws SQLException Si no se puede conectar con ningún nodo.
+     */
+    public static DBConnect paraLectura() throws SQLException {
+        return paraLectura(TIMEOUT_CONEXION_POR_DEFECTO_MS, 0);
+    }
+
+    /**
+     * Abre una conexión para operaciones de solo lectura limitando el tiempo de conexión con cada nodo
+     * y de espera de respuestas del servidor.
+     *
+     * @param timeoutConexionMs Tiempo máximo para establecer la conexión con cada nodo, en milisegundos.
+     * @param timeoutSocketMs Tiempo máximo de espera de cada respuesta del servidor, en milisegundos (0 sin límite).
+     * @return Conexión para lectura.
+     * @throws SQLException Si no se puede conectar con ningún nodo.
+     */
+    public static DBConnect paraLectura(int timeoutConexionMs, int timeoutSocketMs) throws SQLException {
+        Topologia topologia = Topologia.getInstancia();
+        for (Topologia.Nodo replica : topologia.replicasParaLectura()) {
+            long inicio = System.nanoTime();
+            try {
+                Connection conexionReplica = abrirConexion(topologia, replica.getUrl(), timeoutConexionMs, timeoutSocketMs);
+                topologia.registrarLatencia(replica, System.nanoTime() - inicio);
+                return new DBConnect(conexionReplica, replica, timeoutConexionMs, timeoutSocketMs);
+            } catch (SQLException ex) {
+                LOGGER.log(Level.WARNING, "Réplica no disponible, se expulsa temporalmente: " + replica, ex);
+                topologia.expulsar(replica);
+            }
+        }
+        return new DBConnect(abrirConexion(topologia, topologia.getPrimario().getUrl(), timeoutConexionMs, timeoutSocketMs),
+                null, timeoutConexionMs, timeoutSocketMs);
+    }
+
+    /**
+     * Ejecuta una consulta de solo lectura sobre esta conexión.
+     * <p>
+     * Si la conexión es de una réplica y la consulta falla con un error no transitorio (tabla ausente, réplica
+     * rota o desconectada a mitad de consulta...), la réplica se expulsa temporalmente y la consulta se repite
+     * una vez en el primario con una conexión nueva, que se cierra al terminar. Los errores transitorios
+     * (timeouts, bloqueos) se propagan sin reintentar, para que el gobernador los cuente como sobrecarga.
+     *
+     * @param lectura Consulta a ejecutar.
+     * @param <T> Tipo del resultado.
+     * @return Resultado de la consulta.
+     * @throws SQLException Si la consulta falla en el primario, o con un error transitorio en la réplica.
+     */
+    public <T> T leer(Lectura<T> lectura) throws SQLException {
+        try {
+            return lectura.leer(connection);
+        } catch (SQLTransientException ex) {
+            throw ex;
+        } catch (SQLException ex) {
+            if (replica == null) {
+                throw ex;
+            }
+            LOGGER.log(Level.WARNING, "Lectura fallida en la réplica, se expulsa temporalmente y se repite en el primario: "
+                    + replica, ex);
+            Topologia.getInstancia().expulsar(replica);
+        }
 
-        String url = buildConnectionUrl(configuracion);
+        DBConnect primario = new DBConnect(timeoutConexionMs, timeoutSocketMs);
+        try {
+            return lectura.leer(primario.getConnection());
+        } finally {
+            primario.closeConnection();
+        }
+    }
+
+    /**
+     * Abre una conexión con el nodo indicado.
+     * Los timeouts se pasan como propiedades {@code connectTimeout} y {@code socketTimeout}, que entienden
+     * los drivers de MariaDB y MySQL; con otros drivers (como H2 en memoria) no se aplican, porque rechazan
+     * las propiedades que no conocen.
+     *
+     * @param topologia Topología con las credenciales de conexión.
+     * @param url URL JDBC del nodo.
+     * @param timeoutConexionMs Tiempo máximo para establecer la conexión, en milisegundos.
+     * @param timeoutSocketMs Tiempo máximo de espera de cada respuesta del servidor, en milisegundos (0 sin límite).
+     * @return La conexión abierta.
+     * @throws SQLException Si hay errores al establecer la conexión.
+     */
+    private static Connection abrirConexion(Topologia topologia, String url, int timeoutConexionMs, int timeoutSocketMs)
+            throws SQLException {
         Properties connectionProps = new Properties();
-        connectionProps.setProperty("user", configuracion.getProperty("user"));
-        connectionProps.setProperty("password", configuracion.getProperty("password"));
+        if (topologia.getUsuario() != null) {
+            connectionProps.setProperty("user", topologia.getUsuario());
+        }
+        if (topologia.getPassword() != null) {
+            connectionProps.setProperty("password", topologia.getPassword());
+        }
+        if (url.startsWith("jdbc:mariadb:") || url.startsWith("jdbc:mysql:")) {
+            connectionProps.setProperty("connectTimeout", String.valueOf(timeoutConexionMs));
+            connectionProps.setProperty("socketTimeout", String.valueOf(timeoutSocketMs));
+        }
 
         try {
-            connection = DriverManager.getConnection(url, connectionProps);
-            connection.setAutoCommit(true);
+            Connection conexion = DriverManager.getConnection(url, connectionProps);
+            conexion.setAutoCommit(true);
 
             // Debug info
-            DatabaseMetaData metaData = connection.getMetaData();
-            LOGGER.info("Conectado a la base de datos: " + metaData.getDatabaseProductName());
+            DatabaseMetaData metaData = conexion.getMetaData();
+            LOGGER.info("Conectado a la base de datos: " + metaData.getDatabaseProductName() + " (" + url + ")");
             LOGGER.info("Versión de la base de datos: " + metaData.getDatabaseProductVersion());
             LOGGER.info("Driver: " + metaData.getDriverName());
             LOGGER.info("Versión del driver: " + metaData.getDriverVersion());
+            return RastreoRecursos.envolver(conexion);
         } catch (SQLException ex) {
-            LOGGER.log(Level.SEVERE, "Error al conectar a la base de datos", ex);
+            LOGGER.log(Level.SEVERE, "Error al conectar a la base de datos " + url, ex);
             throw ex;
         }
     }
@@ -51,7 +200,7 @@ public class DBConnect {
      *
      * @return Propiedades de configuración para la conexión a la base de datos.
      */
-    private static Properties loadConfiguration() {
+    public static Properties loadConfiguration() {
         File configFile = new File("configuracion.properties");
         Properties properties = new Properties();
 
@@ -69,9 +218,13 @@ public class DBConnect {
      * Construye la URL de conexión a la base de datos.
      *
      * @param configuracion Propiedades de configuración.
+     * @param urlCompleta URL JDBC completa que tiene prioridad sobre address/port/database, o null.
      * @return URL de conexión para la base de datos.
      */
-    private String buildConnectionUrl(Properties configuracion) {
+    static String buildConnectionUrl(Properties configuracion, String urlCompleta) {
+        if (urlCompleta != null && !urlCompleta.isBlank()) {
+            return urlCompleta.trim();
+        }
         return "jdbc:mariadb://" + configuracion.getProperty("address") + ":" + configuracion.getProperty("port")
                 + "/" + configuracion.getProperty("database") + "?serverTimezone=Europe/Madrid";
     }
@@ -0,0 +1,146 @@
+package com.intissar.examen.Conexion;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rastreo de los recursos JDBC abiertos (conexiones, sentencias y ResultSets), pensado para pruebas
+ * de carga y de larga duración en las que hay que detectar fugas.
+ * <p>
+ * Está desactivado por defecto. Una vez activado, {@link DBConnect} envuelve cada conexión nueva en un
+ * proxy que cuenta los recursos que se abren y se cierran; cerrar una sentencia o una conexión cuenta
+ * también como cierre de los recursos que dependen de ella, igual que establece JDBC.
+ */
+public final class RastreoRecursos {
+    private static volatile boolean activo;
+
+    private static final AtomicLong conexionesAbiertas = new AtomicLong();
+    private static final AtomicLong conexionesTotales = new AtomicLong();
+    private static final AtomicLong sentenciasAbiertas = new AtomicLong();
+    private static final AtomicLong resultadosAbiertos = new AtomicLong();
+
+    private RastreoRecursos() {
+    }
+
+    /**
+     * Activa el rastreo para las conexiones que se abran a partir de ahora.
+     */
+    public static void activar() {
+        activo = true;
+    }
+
+    /**
+     * @return true si el rastreo está activo.
+     */
+    public static boolean isActivo() {
+        return activo;
+    }
+
+    /**
+     * @return Conexiones abiertas y no cerradas en este momento.
+     */
+    public static long getConexionesAbiertas() {
+        return conexionesAbiertas.get();
+    }
+
+    /**
+     * @return Conexiones abiertas desde que se activó el rastreo.
+     */
+    public static long getConexionesTotales() {
+        return conexionesTotales.get();
+    }
+
+    /**
+     * @return Sentencias abiertas y no cerradas en este momento.
+     */
+    public static long getSentenciasAbiertas() {
+        return sentenciasAbiertas.get();
+    }
+
+    /**
+     * @return ResultSets abiertos y no cerrados en este momento.
+     */
+    public static long getResultadosAbiertos() {
+        return resultadosAbiertos.get();
+    }
+
+    /**
+     * Envuelve una conexión recién abierta si el rastreo está activo.
+     *
+     * @param conexion Conexión real.
+     * @return La conexión rastreada, o la misma conexión si el rastreo está desactivado.
+     */
+    static Connection envolver(Connection conexion) {
+        if (!activo) {
+            return conexion;
+        }
+        conexionesTotales.incrementAndGet();
+        return (Connection) crearProxy(Connection.class, conexion, conexionesAbiertas, null);
+    }
+
+    private static Object crearProxy(Class<?> interfaz, Object destino, AtomicLong contador, Manejador padre) {
+        contador.incrementAndGet();
+        Manejador manejador = new Manejador(destino, contador, padre);
+        if (padre != null) {
+            padre.hijos.add(manejador);
+        }
+        return Proxy.newProxyInstance(RastreoRecursos.class.getClassLoader(), new Class<?>[]{interfaz}, manejador);
+    }
+
+    /**
+     * Manejador del proxy: delega en el recurso real y lleva la cuenta de su ciclo de vida.
+     */
+    private static class Manejador implements InvocationHandler {
+        private final Object destino;
+        private final AtomicLong contador;
+        private final Manejador padre;
+        private final Set<Manejador> hijos = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean cerrado = new AtomicBoolean();
+
+        Manejador(Object destino, AtomicLong contador, Manejador padre) {
+            this.destino = destino;
+            this.contador = contador;
+            this.padre = padre;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object resultado;
+            try {
+                resultado = method.invoke(destino, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (method.getName().equals("close")) {
+                marcarCerrado();
+            } else if (resultado instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return crearProxy(method.getReturnType(), resultado, sentenciasAbiertas, this);
+            } else if (resultado instanceof ResultSet && method.getReturnType() == ResultSet.class) {
+                return crearProxy(ResultSet.class, resultado, resultadosAbiertos, this);
+            }
+            return resultado;
+        }
+
+        private void marcarCerrado() {
+            if (cerrado.compareAndSet(false, true)) {
+                contador.decrementAndGet();
+                for (Manejador hijo : hijos) {
+                    hijo.marcarCerrado();
+                }
+                if (padre != null) {
+                    padre.hijos.remove(this);
+                }
+            }
+        }
+    }
+}
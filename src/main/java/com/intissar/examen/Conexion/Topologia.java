@@ -0,0 +1,281 @@
+package com.intissar.examen.Conexion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Topología de la base de datos: un nodo primario para escrituras y cero o más réplicas para lecturas.
+ * <p>
+ * Se configura en {@code configuracion.properties} con las siguientes claves, además de las de conexión habituales:
+ * <ul>
+ *     <li>{@code url}: URL JDBC completa del primario (opcional, sustituye a address/port/database).</li>
+ *     <li>{@code replicas}: lista separada por comas de réplicas, como {@code host:puerto} o URL JDBC completa.</li>
+ *     <li>{@code replicas.estrategia}: {@code round-robin} (por defecto) o {@code menor-latencia}. La latencia
+ *     es la de establecer la conexión, no la de las consultas, que dependen de lo que se lea.</li>
+ *     <li>{@code replicas.permanencia.ms}: tiempo durante el que un cliente lee del primario tras escribir.</li>
+ *     <li>{@code replicas.expulsion.ms}: tiempo durante el que una réplica que ha fallado (al conectar o con un
+ *     error no transitorio al consultar) deja de usarse.</li>
+ * </ul>
+ * Con URLs completas se puede probar en local con dos bases de datos embebidas
+ * (por ejemplo {@code url=jdbc:h2:mem:primario;DB_CLOSE_DELAY=-1} y {@code replicas=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1}).
+ * Sin {@code DB_CLOSE_DELAY=-1}, H2 borra una base de datos en memoria al cerrarse su última conexión,
+ * y como cada operación abre y cierra la suya, los datos se perderían entre una operación y la siguiente.
+ * <p>
+ * Las escrituras se anotan con {@link #registrarEscritura()} cuando se confirman, no al abrir la conexión:
+ * así la permanencia en el primario cuenta desde que los cambios son visibles, aunque la transacción haya sido larga.
+ */
+public class Topologia {
+
+    /**
+     * Estrategias de selección de réplica para las lecturas.
+     */
+    public enum Estrategia {
+        ROUND_ROBIN,
+        MENOR_LATENCIA
+    }
+
+    private static final long PERMANENCIA_POR_DEFECTO_MS = 2000;
+    private static final long EXPULSION_POR_DEFECTO_MS = 30000;
+    // Peso de cada nueva muestra en la media móvil exponencial de latencia
+    private static final double PESO_LATENCIA = 0.2;
+
+    private static volatile Topologia instancia;
+
+    private final Nodo primario;
+    private final List<Nodo> replicas;
+    private final Estrategia estrategia;
+    private final long permanenciaNanos;
+    private final long expulsionNanos;
+    private final String usuario;
+    private final String password;
+
+    private final AtomicInteger turno = new AtomicInteger();
+    // Momento de la última escritura de cada cliente (hilo), para leer del primario justo después
+    private final ThreadLocal<Long> ultimaEscritura = new ThreadLocal<>();
+
+    /**
+     * Nodo de la topología (primario o réplica) con su estado de salud.
+     */
+    public static class Nodo {
+        private final String url;
+        private volatile double latenciaMediaNanos;
+        // nanoTime puede ser negativo: se parte del instante de creación, no de 0
+        private volatile long expulsadoHasta = System.nanoTime();
+
+        Nodo(String url) {
+            this.url = url;
+        }
+
+        /**
+         * @return URL JDBC del nodo.
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * @return Latencia media observada al establecer la conexión, en nanosegundos (0 si aún no se ha medido).
+         *         No incluye el tiempo de las consultas.
+         */
+        public double getLatenciaMediaNanos() {
+            return latenciaMediaNanos;
+        }
+
+        /**
+         * @return true si el nodo no está expulsado en este momento.
+         */
+        public boolean isDisponible() {
+            return System.nanoTime() - expulsadoHasta >= 0;
+        }
+
+        synchronized void registrarLatencia(long nanos) {
+            latenciaMediaNanos = latenciaMediaNanos == 0
+                    ? nanos
+                    : latenciaMediaNanos + PESO_LATENCIA * (nanos - latenciaMediaNanos);
+        }
+
+        void expulsar(long duracionNanos) {
+            expulsadoHasta = System.nanoTime() + duracionNanos;
+        }
+
+        @Override
+        public String toString() {
+            return url;
+        }
+    }
+
+    /**
+     * Construye la topología a partir de las propiedades de configuración.
+     *
+     * @param configuracion Propiedades de configuración.
+     */
+    public Topologia(Properties configuracion) {
+        this.primario = new Nodo(DBConnect.buildConnectionUrl(configuracion, configuracion.getProperty("url")));
+        this.usuario = configuracion.getProperty("user");
+        this.password = configuracion.getProperty("password");
+
+        List<Nodo> nodos = new ArrayList<>();
+        String listaReplicas = configuracion.getProperty("replicas", "");
+        for (String replica : listaReplicas.split(",")) {
+            if (!replica.isBlank()) {
+                nodos.add(new Nodo(urlReplica(configuracion, replica.trim())));
+            }
+        }
+        this.replicas = List.copyOf(nodos);
+
+        String nombreEstrategia = configuracion.getProperty("replicas.estrategia", "round-robin");
+        this.estrategia = nombreEstrategia.equalsIgnoreCase("menor-latencia") ? Estrategia.MENOR_LATENCIA : Estrategia.ROUND_ROBIN;
+        this.permanenciaNanos = leerMilisegundos(configuracion, "replicas.permanencia.ms", PERMANENCIA_POR_DEFECTO_MS) * 1_000_000L;
+        this.expulsionNanos = leerMilisegundos(configuracion, "replicas.expulsion.ms", EXPULSION_POR_DEFECTO_MS) * 1_000_000L;
+    }
+
+    /**
+     * Devuelve la topología en uso, cargándola de {@code configuracion.properties} la primera vez.
+     *
+     * @return La topología de la aplicación.
+     */
+    public static Topologia getInstancia() {
+        Topologia actual = instancia;
+        if (actual == null) {
+            synchronized (Topologia.class) {
+                if (instancia == null) {
+                    instancia = new Topologia(DBConnect.loadConfiguration());
+                }
+                actual = instancia;
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * Sustituye la topología en uso, por ejemplo para apuntar a bases de datos embebidas.
+     *
+     * @param configuracion Propiedades de configuración de la nueva topología.
+     */
+    public static void configurar(Properties configuracion) {
+        instancia = new Topologia(configuracion);
+    }
+
+    /**
+     * @return Nodo primario, destino de todas las escrituras.
+     */
+    public Nodo getPrimario() {
+        return primario;
+    }
+
+    /**
+     * @return Réplicas configuradas.
+     */
+    public List<Nodo> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @return Usuario de conexión.
+     */
+    public String getUsuario() {
+        return usuario;
+    }
+
+    /**
+     * @return Contraseña de conexión.
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * Anota que el cliente actual acaba de escribir, para que sus próximas lecturas vayan al primario.
+     */
+    public void registrarEscritura() {
+        if (!replicas.isEmpty()) {
+            ultimaEscritura.set(System.nanoTime());
+        }
+    }
+
+    /**
+     * Devuelve las réplicas a probar para una lectura, en orden de preferencia.
+     * La lista está vacía si no hay réplicas sanas o si el cliente ha escrito hace poco,
+     * en cuyo caso la lectura debe ir al primario.
+     *
+     * @return Réplicas candidatas para la lectura.
+     */
+    public List<Nodo> replicasParaLectura() {
+        Long escritura = ultimaEscritura.get();
+        if (escritura != null) {
+            if (System.nanoTime() - escritura < permanenciaNanos) {
+                return List.of();
+            }
+            ultimaEscritura.remove();
+        }
+
+        List<Nodo> disponibles = new ArrayList<>(replicas.size());
+        for (Nodo replica : replicas) {
+            if (replica.isDisponible()) {
+                disponibles.add(replica);
+            }
+        }
+        if (disponibles.size() > 1) {
+            if (estrategia == Estrategia.MENOR_LATENCIA) {
+                disponibles.sort(Comparator.comparingDouble(Nodo::getLatenciaMediaNanos));
+            } else {
+                int desplazamiento = Math.floorMod(turno.getAndIncrement(), disponibles.size());
+                List<Nodo> rotadas = new ArrayList<>(disponibles.subList(desplazamiento, disponibles.size()));
+                rotadas.addAll(disponibles.subList(0, desplazamiento));
+                disponibles = rotadas;
+            }
+        }
+        return disponibles;
+    }
+
+    /**
+     * Registra la latencia observada al conectar con un nodo. Solo se mide el establecimiento de la conexión:
+     * el tiempo de las consultas depende sobre todo de lo que se consulta, no del nodo.
+     *
+     * @param nodo Nodo al que se ha conectado.
+     * @param nanos Tiempo de conexión en nanosegundos.
+     */
+    public void registrarLatencia(Nodo nodo, long nanos) {
+        nodo.registrarLatencia(nanos);
+    }
+
+    /**
+     * Expulsa temporalmente un nodo que ha fallado.
+     *
+     * @param nodo Nodo que ha fallado.
+     */
+    public void expulsar(Nodo nodo) {
+        nodo.expulsar(expulsionNanos);
+    }
+
+    private static String urlReplica(Properties configuracion, String replica) {
+        if (replica.startsWith("jdbc:")) {
+            return replica;
+        }
+        Properties propiedadesReplica = new Properties();
+        propiedadesReplica.putAll(configuracion);
+        int separador = replica.lastIndexOf(':');
+        if (separador > 0) {
+            propiedadesReplica.setProperty("address", replica.substring(0, separador));
+            propiedadesReplica.setProperty("port", replica.substring(separador + 1));
+        } else {
+            propiedadesReplica.setProperty("address", replica);
+        }
+        return DBConnect.buildConnectionUrl(propiedadesReplica, null);
+    }
+
+    private static long leerMilisegundos(Properties configuracion, String clave, long porDefecto) {
+        String valor = configuracion.getProperty(clave);
+        if (valor == null || valor.isBlank()) {
+            return porDefecto;
+        }
+        try {
+            return Long.parseLong(valor.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Valor no válido para " + clave + ": " + valor, ex);
+        }
+    }
+}
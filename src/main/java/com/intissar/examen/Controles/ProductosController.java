@@ -1,6 +1,7 @@
 package com.intissar.examen.Controles;
 
-import com.intissar.examen.DAO.ProductoDAO;
+import com.intissar.examen.DAO.JdbcProductoRepository;
+import com.intissar.examen.DAO.ProductoRepository;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
@@ -37,18 +38,32 @@ public class ProductosController {
     @FXML private Button btnCrear; // Botón para crear un nuevo producto
     @FXML private Button btnActualizar; // Botón para actualizar un producto existente
 
-    // DAO para realizar operaciones en la base de datos
-    private ProductoDAO productoDAO;
+    // Repositorio para realizar operaciones sobre los productos
+    private final ProductoRepository repositorio;
 
     // Ruta de la imagen seleccionada
     private String rutaImagen;
 
     /**
-     * Inicializa el controlador, configura las columnas de la tabla y carga los productos desde la base de datos.
+     * Constructor por defecto: trabaja contra la base de datos.
+     */
+    public ProductosController() {
+        this(new JdbcProductoRepository());
+    }
+
+    /**
+     * Constructor que recibe el repositorio con el que trabajará el controlador.
+     * @param repositorio Repositorio de productos (base de datos, memoria...).
+     */
+    public ProductosController(ProductoRepository repositorio) {
+        this.repositorio = repositorio;
+    }
+
+    /**
+     * Inicializa el controlador, configura las columnas de la tabla y carga los productos desde el repositorio.
      */
     @FXML
     public void initialize() {
-        productoDAO = new ProductoDAO(); // Inicializa el DAO para interactuar con la base de datos
         configurarColumnas(); // Configura las columnas de la tabla
         cargarProductos(); // Carga los productos desde la base de datos
     }
@@ -68,7 +83,7 @@ public class ProductosController {
     private void cargarProductos() {
         try {
             tabla.getItems().clear(); // Limpia los productos existentes en la tabla
-            tabla.getItems().addAll(productoDAO.obtenerTodosProductos()); // Carga y agrega los productos
+            tabla.getItems().addAll(repositorio.obtenerTodosProductos()); // Carga y agrega los productos
         } catch (Exception e) {
             mostrarAlertaError("Error al cargar productos", e.getMessage()); // Muestra un mensaje de error en caso de fallo
         }
@@ -128,7 +143,7 @@ public class ProductosController {
                 );
 
                 // Agrega el producto a la base de datos
-                if (productoDAO.agregarProducto(nuevoProducto)) {
+                if (repositorio.agregarProducto(nuevoProducto)) {
                     cargarProductos(); // Recarga los productos
                     limpiar(); // Limpia los campos de entrada
                 }
@@ -163,7 +178,7 @@ public class ProductosController {
                 );
 
                 // Actualiza el producto en la base de datos
-                if (productoDAO.actualizarProducto(productoActualizado)) {
+                if (repositorio.actualizarProducto(productoActualizado)) {
                     cargarProductos(); // Recarga los productos
                     limpiar(); // Limpia los campos de entrada
                 }
@@ -189,7 +204,7 @@ public class ProductosController {
             if (resultado.isPresent() && resultado.get() == ButtonType.OK) {
                 try {
                     // Elimina el producto de la base de datos
-                    if (productoDAO.eliminarProducto(productoSeleccionado.getCodigo())) {
+                    if (repositorio.eliminarProducto(productoSeleccionado.getCodigo())) {
                         cargarProductos(); // Recarga los productos
                         limpiar(); // Limpia los campos de entrada
                     }
@@ -209,7 +224,7 @@ public class ProductosController {
             try {
                 // Crea una nueva ventana para mostrar la imagen completa
                 Stage stage = new Stage();
-                ImageView imageView = new ImageView(new Image(new File(String.valueOf(productoSeleccionado.getImagen())).toURI().toString()));
+                ImageView imageView = new ImageView(new Image(productoSeleccionado.getImagen().getBinaryStream()));
                 imageView.setFitWidth(300);
                 imageView.setFitHeight(300);
                 imageView.setPreserveRatio(true);
@@ -0,0 +1,123 @@
+package com.intissar.examen.DAO;
+
+import com.intissar.examen.Conexion.DBConnect;
+import com.intissar.examen.Modelo.Producto;
+
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.regex.Pattern;
+
+/**
+ * Recorrido secuencial de los productos ordenados por código, sin cargarlos todos en memoria.
+ * Las filas se leen del servidor a medida que se avanza. No incluye la imagen.
+ * <p>
+ * Las filas llegan en el orden de la propia columna codigo, cuya colación ({@code latin1_spanish_ci}) no distingue
+ * mayúsculas ni acentos: {@code lim33} y {@code LIM33} son la misma clave, y también {@code CAFÉ1} y {@code CAFE1}.
+ * Ese orden solo coincide con el de {@link #ORDEN_CODIGOS} para códigos formados por letras ASCII y dígitos,
+ * así que el cursor falla con cualquier otro código (ver {@link #esCodigoOrdenable(String)}) en lugar de
+ * devolverlo fuera de orden; quien mezcle este recorrido con otra fuente ordenada debe comparar los códigos
+ * con {@link #ORDEN_CODIGOS} y exigir la misma restricción a esa fuente.
+ * <p>
+ * Sobre MySQL Connector/J las filas se reciben una a una en streaming ({@code setFetchSize(Integer.MIN_VALUE)}),
+ * porque ese driver ignora el tamaño de bloque salvo que la conexión se abra con {@code useCursorFetch=true}
+ * y, sin ninguna de las dos cosas, cargaría el resultado entero en memoria. Mientras el recorrido está
+ * abierto su conexión no admite otras sentencias, por eso el cursor tiene una conexión propia.
+ * Con el resto de drivers (MariaDB Connector/J, H2) se piden bloques de {@value #FILAS_POR_BLOQUE} filas.
+ */
+public class CursorProductos implements AutoCloseable {
+    // Filas que se piden al servidor en cada viaje
+    private static final int FILAS_POR_BLOQUE = 1000;
+
+    // Letras ASCII y dígitos: los únicos caracteres cuyo orden es el mismo en Java y en la colación de la columna
+    private static final Pattern CODIGO_ORDENABLE = Pattern.compile("[A-Za-z0-9]+");
+
+    /**
+     * Orden de los códigos que sigue el cursor: sin distinguir mayúsculas de minúsculas. Para códigos que
+     * cumplen {@link #esCodigoOrdenable(String)} es el mismo orden e igualdad que los de la columna codigo.
+     */
+    public static final Comparator<String> ORDEN_CODIGOS = String.CASE_INSENSITIVE_ORDER;
+
+    private final DBConnect conexion;
+    private final PreparedStatement stmt;
+    private final ResultSet resultado;
+
+    /**
+     * Abre el cursor sobre una conexión propia.
+     *
+     * @param conexion Conexión que pasa a ser propiedad del cursor y se cierra con él.
+     * @param timeoutSegundos Timeout de la consulta.
+     * @throws SQLException en caso de error SQL.
+     */
+    CursorProductos(DBConnect conexion, int timeoutSegundos) throws SQLException {
+        this.conexion = conexion;
+        try {
+            Connection conn = conexion.getConnection();
+            DatabaseMetaData metaData = conn.getMetaData();
+            // Se ordena por la columna tal cual, para recorrer la clave primaria sin ordenar aparte
+            stmt = conn.prepareStatement(
+                    "SELECT codigo, nombre, precio, disponible FROM productos ORDER BY codigo",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(metaData.getDriverName().startsWith("MySQL Connector") ? Integer.MIN_VALUE : FILAS_POR_BLOQUE);
+            stmt.setQueryTimeout(timeoutSegundos);
+            resultado = stmt.executeQuery();
+        } catch (SQLException e) {
+            conexion.closeConnection();
+            throw e;
+        }
+    }
+
+    /**
+     * Indica si un código puede recorrerse o compararse con {@link #ORDEN_CODIGOS} sabiendo que coincide
+     * con el orden de la base de datos: no vacío y solo con letras ASCII y dígitos.
+     *
+     * @param codigo Código a comprobar.
+     * @return true si el código es ordenable.
+     */
+    public static boolean esCodigoOrdenable(String codigo) {
+        return codigo != null && CODIGO_ORDENABLE.matcher(codigo).matches();
+    }
+
+    /**
+     * Avanza al siguiente producto.
+     *
+     * @return El siguiente producto, o null si no quedan más.
+     * @throws SQLException en caso de error SQL, o si el código del producto no es ordenable.
+     */
+    public Producto siguiente() throws SQLException {
+        if (!resultado.next()) {
+            return null;
+        }
+        String codigo = resultado.getString("codigo");
+        if (!esCodigoOrdenable(codigo)) {
+            throw new SQLException("El código almacenado '" + codigo + "' tiene caracteres distintos de letras ASCII"
+                    + " y dígitos: su orden en la base de datos no es el de ORDEN_CODIGOS");
+        }
+        return new Producto(
+                codigo,
+                resultado.getString("nombre"),
+                resultado.getFloat("precio"),
+                resultado.getBoolean("disponible"),
+                (Blob) null
+        );
+    }
+
+    /**
+     * Cierra el cursor y su conexión.
+     *
+     * @throws SQLException Si ocurre un error al cerrar la conexión.
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            resultado.close();
+            stmt.close();
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+}
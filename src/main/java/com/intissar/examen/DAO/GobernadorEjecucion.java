@@ -0,0 +1,355 @@
+package com.intissar.examen.DAO;
+
+import com.intissar.examen.Conexion.DBConnect;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Regula la ejecución de las operaciones de {@link ProductoDAO} para que una base de datos degradada
+ * no acumule hilos bloqueados.
+ * <p>
+ * Para cada tipo de operación mantiene un límite de concurrencia, una cola de espera acotada
+ * (si está llena la operación se rechaza de inmediato), un tiempo máximo de espera, un timeout
+ * de conexión y un timeout de sentencia. El límite se adapta a la latencia observada: crece poco a poco mientras las
+ * operaciones terminan por debajo de la latencia objetivo y se reduce en cuanto la superan o fallan con un error
+ * transitorio ({@link SQLTransientException}, como un timeout).
+ * <p>
+ * Los valores por defecto se pueden cambiar en {@code configuracion.properties} con las claves
+ * {@code gobernador.<tipo>.concurrencia}, {@code .maximo}, {@code .cola}, {@code .espera.ms},
+ * {@code .timeout.s}, {@code .objetivo.ms} y {@code .conexion.ms}, donde {@code <tipo>} es consulta, listado, escritura o masiva.
+ */
+public class GobernadorEjecucion {
+    // Logger para registrar los rechazos
+    private static final Logger LOGGER = Logger.getLogger(GobernadorEjecucion.class.getName());
+
+    /**
+     * Tipos de operación, cada uno con su propio límite.
+     */
+    public enum TipoOperacion {
+        /** Búsqueda de un producto por código. */
+        CONSULTA(8, 32, 64, 2000, 5, 200, 2000),
+        /** Listados completos de productos. */
+        LISTADO(4, 16, 32, 3000, 15, 1000, 3000),
+        /** Inserciones, actualizaciones y borrados individuales. */
+        ESCRITURA(4, 16, 32, 3000, 10, 300, 3000),
+        /** Procesos masivos (reajustes, importaciones...). Esperan hasta 30 s a que termine el que está en curso. */
+        MASIVA(1, 2, 2, 30000, 120, 5000, 10000);
+
+        private final int concurrencia;
+        private final int maximo;
+        private final int cola;
+        private final long esperaMs;
+        private final int timeoutSegundos;
+        private final long objetivoMs;
+        private final int conexionMs;
+
+        TipoOperacion(int concurrencia, int maximo, int cola, long esperaMs, int timeoutSegundos, long objetivoMs,
+                      int conexionMs) {
+            this.concurrencia = concurrencia;
+            this.maximo = maximo;
+            this.cola = cola;
+            this.esperaMs = esperaMs;
+            this.timeoutSegundos = timeoutSegundos;
+            this.objetivoMs = objetivoMs;
+            this.conexionMs = conexionMs;
+        }
+    }
+
+    /**
+     * Operación de base de datos regulada por el gobernador.
+     *
+     * @param <T> Tipo del resultado.
+     */
+    @FunctionalInterface
+    public interface Operacion<T> {
+        /**
+         * Ejecuta la operación.
+         *
+         * @return Resultado de la operación.
+         * @throws SQLException en caso de error SQL.
+         */
+        T ejecutar() throws SQLException;
+    }
+
+    // Margen del timeout de socket sobre el de sentencia
+    private static final int MARGEN_SOCKET_SEGUNDOS = 5;
+
+    private static volatile GobernadorEjecucion instancia;
+
+    private final Map<TipoOperacion, Limitador> limitadores = new EnumMap<>(TipoOperacion.class);
+    private final Map<TipoOperacion, Integer> timeoutsConexion = new EnumMap<>(TipoOperacion.class);
+
+    /**
+     * Crea un gobernador con los valores de la configuración indicada.
+     *
+     * @param configuracion Propiedades de configuración (las claves ausentes toman el valor por defecto).
+     */
+    public GobernadorEjecucion(Properties configuracion) {
+        for (TipoOperacion tipo : TipoOperacion.values()) {
+            String prefijo = "gobernador." + tipo.name().toLowerCase() + ".";
+            int concurrencia = leer(configuracion, prefijo + "concurrencia", tipo.concurrencia);
+            int maximo = Math.max(concurrencia, leer(configuracion, prefijo + "maximo", tipo.maximo));
+            limitadores.put(tipo, new Limitador(
+                    tipo,
+                    concurrencia,
+                    maximo,
+                    leer(configuracion, prefijo + "cola", tipo.cola),
+                    TimeUnit.MILLISECONDS.toNanos(leer(configuracion, prefijo + "espera.ms", tipo.esperaMs)),
+                    leer(configuracion, prefijo + "timeout.s", tipo.timeoutSegundos),
+                    TimeUnit.MILLISECONDS.toNanos(leer(configuracion, prefijo + "objetivo.ms", tipo.objetivoMs))));
+            timeoutsConexion.put(tipo, leer(configuracion, prefijo + "conexion.ms", tipo.conexionMs));
+        }
+    }
+
+    /**
+     * Devuelve el gobernador de la aplicación, creándolo la primera vez a partir de {@code configuracion.properties}.
+     *
+     * @return El gobernador en uso.
+     */
+    public static GobernadorEjecucion getInstancia() {
+        GobernadorEjecucion actual = instancia;
+        if (actual == null) {
+            synchronized (GobernadorEjecucion.class) {
+                if (instancia == null) {
+                    instancia = new GobernadorEjecucion(DBConnect.loadConfiguration());
+                }
+                actual = instancia;
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * Sustituye el gobernador en uso, por ejemplo para ajustar los límites en pruebas de carga.
+     *
+     * @param configuracion Propiedades de configuración del nuevo gobernador.
+     */
+    public static void configurar(Properties configuracion) {
+        instancia = new GobernadorEjecucion(configuracion);
+    }
+
+    /**
+     * Ejecuta una operación respetando el límite de su tipo.
+     *
+     * @param tipo Tipo de la operación.
+     * @param operacion Operación a ejecutar.
+     * @param <T> Tipo del resultado.
+     * @return Resultado de la operación.
+     * @throws SQLTransientException Si la cola de espera está llena o se agota el tiempo de espera.
+     * @throws SQLException Si la operación falla.
+     */
+    public <T> T ejecutar(TipoOperacion tipo, Operacion<T> operacion) throws SQLException {
+        Limitador limitador = limitadores.get(tipo);
+        limitador.adquirir();
+        long inicio = System.nanoTime();
+        boolean sobrecarga = false;
+        try {
+            return operacion.ejecutar();
+        } catch (SQLTransientException e) {
+            // Timeouts, conexiones rechazadas, interbloqueos...: la base de datos no da abasto
+            sobrecarga = true;
+            throw e;
+        } finally {
+            limitador.liberar(System.nanoTime() - inicio, sobrecarga);
+        }
+    }
+
+    /**
+     * Devuelve el timeout de sentencia configurado para un tipo de operación.
+     *
+     * @param tipo Tipo de la operación.
+     * @return Timeout en segundos, para {@code Statement.setQueryTimeout}.
+     */
+    public int getTimeoutSegundos(TipoOperacion tipo) {
+        return limitadores.get(tipo).timeoutSegundos;
+    }
+
+    /**
+     * Devuelve el tiempo máximo para establecer la conexión de un tipo de operación.
+     *
+     * @param tipo Tipo de la operación.
+     * @return Timeout de conexión en milisegundos.
+     */
+    public int getTimeoutConexionMs(TipoOperacion tipo) {
+        return timeoutsConexion.get(tipo);
+    }
+
+    /**
+     * Devuelve el tiempo máximo de espera de cada respuesta del servidor para un tipo de operación.
+     * Supera en un margen al timeout de sentencia, de modo que normalmente sea este el que cancele la consulta
+     * y el del socket solo actúe si el servidor deja de responder.
+     *
+     * @param tipo Tipo de la operación.
+     * @return Timeout de socket en milisegundos.
+     */
+    public int getTimeoutSocketMs(TipoOperacion tipo) {
+        return (getTimeoutSegundos(tipo) + MARGEN_SOCKET_SEGUNDOS) * 1000;
+    }
+
+    /**
+     * @param tipo Tipo de la operación.
+     * @return Límite de concurrencia actual.
+     */
+    public int getLimiteActual(TipoOperacion tipo) {
+        return limitadores.get(tipo).limiteEntero();
+    }
+
+    /**
+     * @param tipo Tipo de la operación.
+     * @return Operaciones en ejecución.
+     */
+    public int getEnEjecucion(TipoOperacion tipo) {
+        return limitadores.get(tipo).enEjecucion();
+    }
+
+    /**
+     * @param tipo Tipo de la operación.
+     * @return Operaciones esperando turno en la cola.
+     */
+    public int getEnEspera(TipoOperacion tipo) {
+        return limitadores.get(tipo).enCola();
+    }
+
+    /**
+     * @param tipo Tipo de la operación.
+     * @return Operaciones rechazadas desde el arranque.
+     */
+    public long getRechazadas(TipoOperacion tipo) {
+        return limitadores.get(tipo).rechazadas.get();
+    }
+
+    private static int leer(Properties configuracion, String clave, long porDefecto) {
+        String valor = configuracion.getProperty(clave);
+        if (valor == null || valor.isBlank()) {
+            return (int) porDefecto;
+        }
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Valor no válido para " + clave + ": " + valor, ex);
+        }
+    }
+
+    /**
+     * Límite adaptativo de concurrencia con cola de espera acotada para un tipo de operación.
+     */
+    private static class Limitador {
+        // Factor de reducción del límite cuando se supera la latencia objetivo
+        private static final double REDUCCION = 0.9;
+
+        private final TipoOperacion tipo;
+        private final int minimo;
+        private final int maximo;
+        private final int capacidadCola;
+        private final long esperaNanos;
+        private final int timeoutSegundos;
+        private final long objetivoNanos;
+
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private final Condition hayHueco = lock.newCondition();
+        private final AtomicLong rechazadas = new AtomicLong();
+
+        private volatile double limite;
+        private int enUso;
+        private int enEspera;
+
+        Limitador(TipoOperacion tipo, int inicial, int maximo, int capacidadCola, long esperaNanos,
+                  int timeoutSegundos, long objetivoNanos) {
+            this.tipo = tipo;
+            this.minimo = 1;
+            this.maximo = maximo;
+            this.capacidadCola = capacidadCola;
+            this.esperaNanos = esperaNanos;
+            this.timeoutSegundos = timeoutSegundos;
+            this.objetivoNanos = objetivoNanos;
+            this.limite = Math.max(minimo, inicial);
+        }
+
+        void adquirir() throws SQLTransientException {
+            lock.lock();
+            try {
+                if (enEspera == 0 && enUso < limiteEntero()) {
+                    enUso++;
+                    return;
+                }
+                if (enEspera >= capacidadCola || esperaNanos <= 0) {
+                    throw rechazo("cola de espera llena");
+                }
+
+                enEspera++;
+                try {
+                    long restante = esperaNanos;
+                    while (enUso >= limiteEntero()) {
+                        if (restante <= 0) {
+                            throw rechazo("tiempo de espera agotado");
+                        }
+                        restante = hayHueco.awaitNanos(restante);
+                    }
+                    enUso++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLTransientException("Operación interrumpida mientras esperaba turno", e);
+                } finally {
+                    enEspera--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void liberar(long latenciaNanos, boolean sobrecarga) {
+            lock.lock();
+            try {
+                enUso--;
+                if (sobrecarga || latenciaNanos > objetivoNanos) {
+                    limite = Math.max(minimo, limite * REDUCCION);
+                } else if (enUso + 1 >= limiteEntero()) {
+                    // Solo se amplía cuando el límite se está aprovechando por completo
+                    limite = Math.min(maximo, limite + 1.0 / limite);
+                }
+                for (int huecos = limiteEntero() - enUso; huecos > 0; huecos--) {
+                    hayHueco.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int limiteEntero() {
+            return (int) limite;
+        }
+
+        int enEjecucion() {
+            lock.lock();
+            try {
+                return enUso;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int enCola() {
+            lock.lock();
+            try {
+                return enEspera;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private SQLTransientException rechazo(String motivo) {
+            rechazadas.incrementAndGet();
+            LOGGER.warning("Operación " + tipo + " rechazada: " + motivo);
+            return new SQLTransientException("Base de datos saturada (" + motivo + "), inténtelo de nuevo más tarde");
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.intissar.examen.DAO;
+
+import com.intissar.examen.Modelo.Producto;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Repositorio de productos sobre la base de datos, mediante {@link ProductoDAO}.
+ * Conserva el enrutado a réplicas, el gobernador de ejecución y la auditoría del DAO.
+ */
+public class JdbcProductoRepository implements ProductoRepository {
+
+    @Override
+    public Producto obtenerProductoPorCodigo(String codigo) throws SQLException {
+        return ProductoDAO.obtenerProductoPorCodigo(codigo);
+    }
+
+    @Override
+    public List<Producto> obtenerTodosProductos() throws SQLException {
+        return ProductoDAO.obtenerTodosProductos();
+    }
+
+    @Override
+    public boolean agregarProducto(Producto producto) throws SQLException {
+        return ProductoDAO.agregarProducto(producto);
+    }
+
+    @Override
+    public boolean actualizarProducto(Producto producto) throws SQLException {
+        return ProductoDAO.actualizarProducto(producto);
+    }
+
+    @Override
+    public boolean eliminarProducto(String codigo) throws SQLException {
+        return ProductoDAO.eliminarProducto(codigo);
+    }
+}
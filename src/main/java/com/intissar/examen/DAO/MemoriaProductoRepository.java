@@ -0,0 +1,144 @@
+package com.intissar.examen.DAO;
+
+import com.intissar.examen.Modelo.Producto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Repositorio de productos en memoria, seguro para usar desde varios hilos a la vez.
+ * Sirve como caché, para pruebas sin base de datos y para trabajar sin conexión.
+ * <p>
+ * Los productos se guardan en un mapa concurrente por código, con un índice ordenado de códigos
+ * para listar en orden y por rangos sin bloquear. Se guardan y devuelven copias, de modo que
+ * modificar un producto fuera del repositorio no altera su contenido.
+ * <p>
+ * Como la columna {@code codigo} de la base de datos, los códigos no distinguen mayúsculas de
+ * minúsculas: "abc01" y "ABC01" son el mismo producto, que conserva el código con el que se añadió.
+ */
+public class MemoriaProductoRepository implements ProductoRepository {
+    private final ConcurrentMap<String, Producto> productos = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<String> indice = new ConcurrentSkipListSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Crea un repositorio vacío.
+     */
+    public MemoriaProductoRepository() {
+    }
+
+    /**
+     * Crea un repositorio con los productos indicados, por ejemplo los leídos de la base de datos.
+     * @param iniciales Productos con los que se carga el repositorio.
+     */
+    public MemoriaProductoRepository(Collection<Producto> iniciales) {
+        for (Producto producto : iniciales) {
+            insertar(producto);
+        }
+    }
+
+    @Override
+    public Producto obtenerProductoPorCodigo(String codigo) {
+        Producto producto = productos.get(clave(codigo));
+        return producto == null ? null : copiar(producto);
+    }
+
+    /**
+     * Devuelve todos los productos ordenados por código.
+     * @return Lista con todos los productos.
+     */
+    @Override
+    public List<Producto> obtenerTodosProductos() {
+        return copiarEnOrden(indice);
+    }
+
+    /**
+     * Devuelve los productos cuyo código está en el rango indicado, ordenados por código.
+     * @param desde Primer código (inclusive).
+     * @param hasta Último código (inclusive).
+     * @return Lista con los productos del rango.
+     */
+    public List<Producto> obtenerRango(String desde, String hasta) {
+        return copiarEnOrden(indice.subSet(desde, true, hasta, true));
+    }
+
+    @Override
+    public boolean agregarProducto(Producto producto) {
+        return insertar(producto);
+    }
+
+    private boolean insertar(Producto producto) {
+        validar(producto);
+        Producto copia = copiar(producto);
+        // El índice se actualiza dentro de compute para que sea atómico con el mapa para cada código
+        return productos.compute(clave(producto.getCodigo()), (clave, actual) -> {
+            if (actual != null) {
+                return actual;
+            }
+            indice.add(clave);
+            return copia;
+        }) == copia;
+    }
+
+    @Override
+    public boolean actualizarProducto(Producto producto) {
+        validar(producto);
+        return productos.computeIfPresent(clave(producto.getCodigo()), (clave, actual) -> {
+            Producto nuevo = copiar(producto);
+            nuevo.setCodigo(actual.getCodigo());
+            if (nuevo.getImagen() == null) {
+                nuevo.setImagen(actual.getImagen());
+            }
+            return nuevo;
+        }) != null;
+    }
+
+    @Override
+    public boolean eliminarProducto(String codigo) {
+        boolean[] eliminado = {false};
+        productos.computeIfPresent(clave(codigo), (clave, actual) -> {
+            indice.remove(clave);
+            eliminado[0] = true;
+            return null;
+        });
+        return eliminado[0];
+    }
+
+    /**
+     * @return Número de productos guardados.
+     */
+    public int size() {
+        return productos.size();
+    }
+
+    private List<Producto> copiarEnOrden(Collection<String> codigos) {
+        List<Producto> lista = new ArrayList<>();
+        for (String codigo : codigos) {
+            // Un producto eliminado mientras se recorre el índice simplemente no aparece
+            Producto producto = productos.get(codigo);
+            if (producto != null) {
+                lista.add(copiar(producto));
+            }
+        }
+        return lista;
+    }
+
+    private static String clave(String codigo) {
+        return codigo == null ? null : codigo.toUpperCase(Locale.ROOT);
+    }
+
+    private static void validar(Producto producto) {
+        if (producto == null || producto.getCodigo() == null) {
+            throw new IllegalArgumentException("El producto y su código son obligatorios");
+        }
+    }
+
+    private static Producto copiar(Producto producto) {
+        return new Producto(producto.getCodigo(), producto.getNombre(), producto.getPrecio(),
+                producto.isDisponible(), producto.getImagen());
+    }
+}
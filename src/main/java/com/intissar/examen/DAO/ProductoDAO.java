@@ -1,20 +1,37 @@
 package com.intissar.examen.DAO;
 
+import com.intissar.examen.Auditoria.CambioProducto;
+import com.intissar.examen.Auditoria.RegistroAuditoria;
 import com.intissar.examen.Conexion.DBConnect;
+import com.intissar.examen.Conexion.Topologia;
+import com.intissar.examen.DAO.GobernadorEjecucion.TipoOperacion;
+import com.intissar.examen.Modelo.ProgresoReajuste;
 import com.intissar.examen.Modelo.Producto;
+import com.intissar.examen.Modelo.ReglaPrecio;
+import com.intissar.examen.Modelo.ResumenReajuste;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.sql.rowset.serial.SerialBlob;
 
 /**
  * Clase DAO para realizar operaciones CRUD en la tabla de productos en la base de datos.
  */
 public class ProductoDAO {
 
+    // Tamaño de lote por defecto para los reajustes masivos de precios
+    public static final int LOTE_REAJUSTE_POR_DEFECTO = 500;
+
     /**
      * Obtiene un producto específico de la base de datos usando su código.
      * @param codigo El código único del producto.
@@ -22,30 +39,43 @@ public class ProductoDAO {
      * @throws SQLException en caso de error de SQL.
      */
     public static Producto obtenerProductoPorCodigo(String codigo) throws SQLException {
-        DBConnect conexion = new DBConnect();
-        Producto producto = null;
+        return GobernadorEjecucion.getInstancia().ejecutar(TipoOperacion.CONSULTA, () -> {
+            DBConnect conexion = conectarLectura(TipoOperacion.CONSULTA);
+            try {
+                return conexion.leer(conn -> obtenerProductoPorCodigo(conn, codigo));
+            } catch (SQLTransientException e) {
+                // Timeouts y rechazos llegan al gobernador para que ajuste el límite
+                throw e;
+            } catch (SQLException e) {
+                System.err.println("Error al obtener el producto: " + e.getMessage());
+                return null;
+            } finally {
+                conexion.closeConnection();
+            }
+        });
+    }
+
+    /**
+     * Obtiene un producto usando la conexión de una transacción en curso.
+     * @param tx Transacción en la que se ejecuta la consulta.
+     * @param codigo El código único del producto.
+     * @return El objeto Producto si se encuentra, o null si no existe.
+     * @throws SQLException en caso de error de SQL.
+     */
+    public static Producto obtenerProductoPorCodigo(Transaccion tx, String codigo) throws SQLException {
+        return obtenerProductoPorCodigo(tx.getConnection(), codigo);
+    }
+
+    private static Producto obtenerProductoPorCodigo(Connection conn, String codigo) throws SQLException {
         String consulta = "SELECT codigo, nombre, precio, disponible, imagen FROM productos WHERE codigo = ?";
 
-        try (PreparedStatement stmt = conexion.getConnection().prepareStatement(consulta)) {
+        try (PreparedStatement stmt = preparar(conn, consulta, TipoOperacion.CONSULTA)) {
             stmt.setString(1, codigo);
-            ResultSet resultado = stmt.executeQuery();
-
-            // Si se encuentra el producto, se construye un objeto Producto con los datos obtenidos
-            if (resultado.next()) {
-                producto = new Producto(
-                        resultado.getString("codigo"),
-                        resultado.getString("nombre"),
-                        resultado.getFloat("precio"),
-                        resultado.getBoolean("disponible"),
-                        resultado.getBytes("imagen")
-                );
-            }
-            resultado.close();
-            conexion.closeConnection();
-        } catch (SQLException e) {
-            System.err.println("Error al obtener el producto: " + e.getMessage());
+            try (ResultSet resultado = stmt.executeQuery()) {
+                // Si se encuentra el producto, se construye un objeto Producto con los datos obtenidos
+                return resultado.next() ? leerProducto(resultado) : null;
+            }
         }
-        return producto;
     }
 
     /**
@@ -75,34 +105,48 @@ public class ProductoDAO {
     }
 
     /**
-     * Obtiene todos los productos de la base de datos en una lista observable, útil para la vista en JavaFX.
+     * Obtiene todos los productos de la base de datos, ordenados por código, en una lista observable, útil para la vista en JavaFX.
      * @return Una lista observable con todos los productos de la base de datos.
      * @throws SQLException Si ocurre un error de SQL.
      */
     public static ObservableList<Producto> obtenerListadoProductos() throws SQLException {
-        DBConnect conexion = new DBConnect();
+        return GobernadorEjecucion.getInstancia().ejecutar(TipoOperacion.LISTADO, () -> {
+            DBConnect conexion = conectarLectura(TipoOperacion.LISTADO);
+            try {
+                return conexion.leer(conn -> obtenerListadoProductos(conn));
+            } catch (SQLTransientException e) {
+                throw e;
+            } catch (SQLException e) {
+                System.err.println("Error al cargar productos: " + e.getMessage());
+                return FXCollections.observableArrayList();
+            } finally {
+                conexion.closeConnection();
+            }
+        });
+    }
+
+    /**
+     * Obtiene todos los productos usando la conexión de una transacción en curso.
+     * @param tx Transacción en la que se ejecuta la consulta.
+     * @return Una lista observable con todos los productos de la base de datos.
+     * @throws SQLException Si ocurre un error de SQL.
+     */
+    public static ObservableList<Producto> obtenerListadoProductos(Transaccion tx) throws SQLException {
+        return obtenerListadoProductos(tx.getConnection());
+    }
+
+    private static ObservableList<Producto> obtenerListadoProductos(Connection conn) throws SQLException {
         ObservableList<Producto> productos = FXCollections.observableArrayList();
-        String consulta = "SELECT codigo, nombre, precio, disponible, imagen FROM productos";
+        String consulta = "SELECT codigo, nombre, precio, disponible, imagen FROM productos ORDER BY codigo";
 
-        try (PreparedStatement stmt = conexion.getConnection().prepareStatement(consulta);
+        try (PreparedStatement stmt = preparar(conn, consulta, TipoOperacion.LISTADO);
              ResultSet resultado = stmt.executeQuery()) {
 
             // Se iteran los resultados y se agregan los productos a la lista observable
             while (resultado.next()) {
-                Producto producto = new Producto(
-                        resultado.getString("codigo"),
-                        resultado.getString("nombre"),
-                        resultado.getFloat("precio"),
-                        resultado.getBoolean("disponible"),
-                        resultado.getBytes("imagen")
-                );
-                productos.add(producto);
-            }
-            conexion.closeConnection();
-        } catch (SQLException e) {
-            System.err.println("Error al cargar productos: " + e.getMessage());
+                productos.add(leerProducto(resultado));
+            }
         }
-
         return productos;
     }
 
@@ -113,56 +157,106 @@ public class ProductoDAO {
      * @throws SQLException en caso de error SQL.
      */
     public static boolean actualizarProducto(Producto producto) throws SQLException {
-        DBConnect conexion = new DBConnect();
-        String consulta = "UPDATE productos SET nombre = ?, precio = ?, disponible = ?, imagen = ? WHERE codigo = ?";
+        return GobernadorEjecucion.getInstancia().ejecutar(TipoOperacion.ESCRITURA, () -> {
+            DBConnect conexion = conectar(TipoOperacion.ESCRITURA);
+            try {
+                return escribirEnTransaccionCorta(conexion, (conn, auditoria) -> actualizarProducto(conn, producto, auditoria));
+            } catch (SQLTransientException e) {
+                throw e;
+            } catch (SQLException e) {
+                System.err.println("Error al actualizar producto: " + e.getMessage());
+                return false;
+            } finally {
+                conexion.closeConnection();
+            }
+        });
+    }
 
-        try (PreparedStatement stmt = conexion.getConnection().prepareStatement(consulta)) {
+    /**
+     * Actualiza un producto dentro de una transacción en curso.
+     * A diferencia de la versión sin transacción, los errores se propagan para que la transacción pueda deshacerse.
+     * @param tx Transacción en la que se ejecuta la actualización.
+     * @param producto Instancia del producto con los datos actualizados.
+     * @return true si la actualización modificó alguna fila, false en caso contrario.
+     * @throws SQLException en caso de error SQL.
+     */
+    public static boolean actualizarProducto(Transaccion tx, Producto producto) throws SQLException {
+        return actualizarProducto(tx.getConnection(), producto, auditoria(tx));
+    }
+
+    private static boolean actualizarProducto(Connection conn, Producto producto, Consumer<CambioProducto> auditoria) throws SQLException {
+        CambioProducto.Estado antes = auditoria != null ? leerEstado(conn, producto.getCodigo()) : null;
+        // Si el producto no trae imagen se conserva la que ya estuviera guardada
+        String consulta = "UPDATE productos SET nombre = ?, precio = ?, disponible = ?, imagen = COALESCE(?, imagen) WHERE codigo = ?";
+
+        try (PreparedStatement stmt = preparar(conn, consulta, TipoOperacion.ESCRITURA)) {
             stmt.setString(1, producto.getNombre());
             stmt.setFloat(2, producto.getPrecio());
             stmt.setBoolean(3, producto.isDisponible());
-            // stmt.setBytes(4, producto.getImagen()); // Manejo de la imagen
+            asignarImagen(stmt, 4, producto.getImagen());
             stmt.setString(5, producto.getCodigo());
 
-            int filasModificadas = stmt.executeUpdate();
-            conexion.closeConnection();
-            return filasModificadas > 0; // Devuelve true si al menos una fila fue modificada
-        } catch (SQLException e) {
-            System.err.println("Error al actualizar producto: " + e.getMessage());
-            return false;
+            boolean modificado = stmt.executeUpdate() > 0; // Devuelve true si al menos una fila fue modificada
+            if (modificado && auditoria != null) {
+                auditoria.accept(CambioProducto.ahora(CambioProducto.Operacion.ACTUALIZACION, producto.getCodigo(),
+                        antes, CambioProducto.Estado.de(producto)));
+            }
+            return modificado;
         }
     }
 
     /**
      * Inserta un nuevo producto en la base de datos.
      * @param producto El producto a insertar.
-     * @return ID del producto insertado si es exitoso, -1 si ocurre algún error.
+     * @return Número de filas insertadas (1), o -1 si ocurre algún error.
      * @throws SQLException en caso de error SQL.
      */
     public static int insertarProducto(Producto producto) throws SQLException {
-        DBConnect conexion = new DBConnect();
+        return GobernadorEjecucion.getInstancia().ejecutar(TipoOperacion.ESCRITURA, () -> {
+            DBConnect conexion = conectar(TipoOperacion.ESCRITURA);
+            try {
+                return escribirEnTransaccionCorta(conexion, (conn, auditoria) -> insertarProducto(conn, producto, auditoria));
+            } catch (SQLTransientException e) {
+                throw e;
+            } catch (SQLException e) {
+                System.err.println("Error al insertar producto: " + e.getMessage());
+                return -1;
+            } finally {
+                conexion.closeConnection();
+            }
+        });
+    }
+
+    /**
+     * Inserta un producto dentro de una transacción en curso.
+     * @param tx Transacción en la que se ejecuta la inserción.
+     * @param producto El producto a insertar.
+     * @return Número de filas insertadas (1), o -1 si no se insertó.
+     * @throws SQLException en caso de error SQL.
+     */
+    public static int insertarProducto(Transaccion tx, Producto producto) throws SQLException {
+        return insertarProducto(tx.getConnection(), producto, auditoria(tx));
+    }
+
+    private static int insertarProducto(Connection conn, Producto producto, Consumer<CambioProducto> auditoria) throws SQLException {
         String consulta = "INSERT INTO productos (codigo, nombre, precio, disponible, imagen) VALUES (?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = conexion.getConnection().prepareStatement(consulta, Statement.RETURN_GENERATED_KEYS)) {
+        // La clave es el propio código, que ya conoce el llamante: no hay claves generadas que leer
+        try (PreparedStatement stmt = preparar(conn, consulta, TipoOperacion.ESCRITURA)) {
             stmt.setString(1, producto.getCodigo());
             stmt.setString(2, producto.getNombre());
             stmt.setFloat(3, producto.getPrecio());
             stmt.setBoolean(4, producto.isDisponible());
-            // stmt.setBytes(5, producto.getImagen()); // Imagen del producto
+            asignarImagen(stmt, 5, producto.getImagen());
 
             int filasInsertadas = stmt.executeUpdate();
             if (filasInsertadas > 0) {
-                ResultSet clavesGeneradas = stmt.getGeneratedKeys();
-                if (clavesGeneradas.next()) {
-                    int id = clavesGeneradas.getInt(1); // Obtiene el ID generado
-                    clavesGeneradas.close();
-                    conexion.closeConnection();
-                    return id;
+                if (auditoria != null) {
+                    auditoria.accept(CambioProducto.ahora(CambioProducto.Operacion.INSERCION, producto.getCodigo(),
+                            null, CambioProducto.Estado.de(producto)));
                 }
+                return filasInsertadas;
             }
-            conexion.closeConnection();
-            return -1;
-        } catch (SQLException e) {
-            System.err.println("Error al insertar producto: " + e.getMessage());
             return -1;
         }
     }
@@ -174,17 +268,43 @@ public class ProductoDAO {
      * @throws SQLException en caso de error SQL.
      */
     public static boolean eliminarProducto(String codigo) throws SQLException {
-        DBConnect conexion = new DBConnect();
+        return GobernadorEjecucion.getInstancia().ejecutar(TipoOperacion.ESCRITURA, () -> {
+            DBConnect conexion = conectar(TipoOperacion.ESCRITURA);
+            try {
+                return escribirEnTransaccionCorta(conexion, (conn, auditoria) -> eliminarProducto(conn, codigo, auditoria));
+            } catch (SQLTransientException e) {
+                throw e;
+            } catch (SQLException e) {
+                System.err.println("Error al eliminar producto: " + e.getMessage());
+                return false;
+            } finally {
+                conexion.closeConnection();
+            }
+        });
+    }
+
+    /**
+     * Elimina un producto dentro de una transacción en curso.
+     * @param tx Transacción en la que se ejecuta el borrado.
+     * @param codigo Código único del producto a eliminar.
+     * @return true si el producto fue eliminado, false en caso contrario.
+     * @throws SQLException en caso de error SQL.
+     */
+    public static boolean eliminarProducto(Transaccion tx, String codigo) throws SQLException {
+        return eliminarProducto(tx.getConnection(), codigo, auditoria(tx));
+    }
+
+    private static boolean eliminarProducto(Connection conn, String codigo, Consumer<CambioProducto> auditoria) throws SQLException {
+        CambioProducto.Estado antes = auditoria != null ? leerEstado(conn, codigo) : null;
         String consulta = "DELETE FROM productos WHERE codigo = ?";
 
-        try (PreparedStatement stmt = conexion.getConnection().prepareStatement(consulta)) {
+        try (PreparedStatement stmt = preparar(conn, consulta, TipoOperacion.ESCRITURA)) {
             stmt.setString(1, codigo);
-            int filasEliminadas = stmt.executeUpdate();
-            conexion.closeConnection();
-            return filasEliminadas > 0; // Devuelve true si al menos una fila fue eliminada
-        } catch (SQLException e) {
-            System.err.println("Error al eliminar producto: " + e.getMessage());
-            return false;
+            boolean eliminado = stmt.executeUpdate() > 0; // Devuelve true si al menos una fila fue eliminada
+            if (eliminado && auditoria != null) {
+                auditoria.accept(CambioProducto.ahora(CambioProducto.Operacion.ELIMINACION, codigo, antes, null));
+            }
+            return eliminado;
         }
     }
 
@@ -206,4 +326,504 @@ public class ProductoDAO {
     public static boolean agregarProducto(Producto nuevoProducto) throws SQLException {
         return insertarProducto(nuevoProducto) != -1;
     }
+
+    /**
+     * Lee los valores actuales de un producto para registrarlos como estado previo en la auditoría.
+     * @param conn Conexión en la que se hará el cambio.
+     * @param codigo Código del producto.
+     * @return Los valores actuales, o null si el producto no existe.
+     * @throws SQLException en caso de error SQL.
+     */
+    private static CambioProducto.Estado leerEstado(Connection conn, String codigo) throws SQLException {
+        String consulta = "SELECT nombre, precio, disponible FROM productos WHERE codigo = ? FOR UPDATE";
+
+        try (PreparedStatement stmt = preparar(conn, consulta, TipoOperacion.CONSULTA)) {
+            stmt.setString(1, codigo);
+            try (ResultSet resultado = stmt.executeQuery()) {
+                return resultado.next()
+                        ? new CambioProducto.Estado(resultado.getString(1), resultado.getFloat(2), resultado.getBoolean(3))
+                        : null;
+            }
+        }
+    }
+
+    /**
+     * Escritura individual sobre una conexión, con el destino de sus cambios auditados.
+     * @param <T> Tipo del resultado.
+     */
+    @FunctionalInterface
+    private interface Escritura<T> {
+        T ejecutar(Connection conn, Consumer<CambioProducto> auditoria) throws SQLException;
+    }
+
+    /**
+     * Ejecuta una escritura de las operaciones sin transacción en una transacción corta, de modo que
+     * el bloqueo que toma la lectura del estado previo se mantenga hasta que se aplica el cambio.
+     * Los cambios auditados se publican, y la escritura se anota en la topología, solo si la transacción se confirma.
+     * @param conexion Conexión con el primario.
+     * @param escritura Escritura a ejecutar.
+     * @param <T> Tipo del resultado.
+     * @return Resultado de la escritura.
+     * @throws SQLException en caso de error SQL; la transacción se deshace.
+     */
+    private static <T> T escribirEnTransaccionCorta(DBConnect conexion, Escritura<T> escritura) throws SQLException {
+        Connection conn = conexion.getConnection();
+        RegistroAuditoria registro = RegistroAuditoria.getInstancia();
+        List<CambioProducto> cambios = new ArrayList<>();
+        conn.setAutoCommit(false);
+        try {
+            T resultado = escritura.ejecutar(conn, registro.isActiva() ? cambios::add : null);
+            conn.commit();
+            Topologia.getInstancia().registrarEscritura();
+            cambios.forEach(registro::registrar);
+            return resultado;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Destino de los cambios de una transacción: se retienen hasta que se confirme.
+     * @param tx Transacción en curso.
+     * @return El destino de los cambios, o null si la auditoría está desactivada.
+     */
+    private static Consumer<CambioProducto> auditoria(Transaccion tx) {
+        return RegistroAuditoria.getInstancia().isActiva() ? tx::registrarCambio : null;
+    }
+
+    /**
+     * Construye un Producto a partir de la fila actual de un ResultSet.
+     * La imagen se copia en un Blob desconectado, que sigue siendo válido al cerrar la conexión.
+     * @param resultado ResultSet posicionado en la fila a leer.
+     * @return El producto leído.
+     * @throws SQLException en caso de error SQL.
+     */
+    private static Producto leerProducto(ResultSet resultado) throws SQLException {
+        byte[] imagen = resultado.getBytes("imagen");
+        return new Producto(
+                resultado.getString("codigo"),
+                resultado.getString("nombre"),
+                resultado.getFloat("precio"),
+                resultado.getBoolean("disponible"),
+                imagen == null ? null : new SerialBlob(imagen)
+        );
+    }
+
+    /**
+     * Prepara una sentencia aplicando el timeout configurado para su tipo de operación.
+     * @param conn Conexión sobre la que se prepara la sentencia.
+     * @param consulta Texto SQL de la sentencia.
+     * @param tipo Tipo de operación, que determina el timeout.
+     * @return La sentencia preparada.
+     * @throws SQLException en caso de error SQL.
+     */
+    private static PreparedStatement preparar(Connection conn, String consulta, TipoOperacion tipo) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(consulta);
+        try {
+            stmt.setQueryTimeout(GobernadorEjecucion.getInstancia().getTimeoutSegundos(tipo));
+        } catch (SQLException e) {
+            stmt.close();
+            throw e;
+        }
+        return stmt;
+    }
+
+    /**
+     * Abre una conexión con el primario con los timeouts de conexión del tipo de operación.
+     * @param tipo Tipo de operación, que determina los timeouts.
+     * @return La conexión abierta.
+     * @throws SQLException Si no se puede conectar.
+     */
+    private static DBConnect conectar(TipoOperacion tipo) throws SQLException {
+        GobernadorEjecucion gobernador = GobernadorEjecucion.getInstancia();
+        return new DBConnect(gobernador.getTimeoutConexionMs(tipo), gobernador.getTimeoutSocketMs(tipo));
+    }
+
+    /**
+     * Abre una conexión de lectura con los timeouts de conexión del tipo de operación.
+     * Las consultas se ejecutan con {@link DBConnect#leer(DBConnect.Lectura)}, para repetirlas en el primario
+     * si la réplica falla.
+     * @param tipo Tipo de operación, que determina los timeouts.
+     * @return La conexión abierta.
+     * @throws SQLException Si no se puede conectar con ningún nodo.
+     */
+    private static DBConnect conectarLectura(TipoOperacion tipo) throws SQLException {
+        GobernadorEjecucion gobernador = GobernadorEjecucion.getInstancia();
+        return DBConnect.paraLectura(gobernador.getTimeoutConexionMs(tipo), gobernador.getTimeoutSocketMs(tipo));
+    }
+
+    /**
+     * Asigna la imagen de un producto a un parámetro, o NULL si no tiene imagen.
+     * @param stmt Sentencia preparada.
+     * @param indice Índice del parámetro.
+     * @param imagen Imagen del producto.
+     * @throws SQLException en caso de error SQL.
+     */
+    private static void asignarImagen(PreparedStatement stmt, int indice, Blob imagen) throws SQLException {
+        if (imagen != null) {
+            stmt.setBlob(indice, imagen);
+        } else {
+            stmt.setNull(indice, Types.BLOB);
+        }
+    }
+
+    /**
+     * Obtiene los códigos de todos los productos, ordenados, sin cargar el resto de columnas.
+     * @return Lista de códigos.
+     * @throws SQLException en caso de error SQL.
+     */
+    public static List<String> obtenerCodigos() throws SQLException {
+        return GobernadorEjecucion.getInstancia().ejecutar(TipoOperacion.LISTADO, () -> {
+            DBConnect conexion = conectarLectura(TipoOperacion.LISTADO);
+            try {
+                return conexion.leer(conn -> {
+                    List<String> codigos = new ArrayList<>();
+                    try (PreparedStatement stmt = preparar(conn, "SELECT codigo FROM productos ORDER BY codigo", TipoOperacion.LISTADO);
+                         ResultSet resultado = stmt.executeQuery()) {
+                        while (resultado.next()) {
+                            codigos.add(resultado.getString(1));
+                        }
+                    }
+                    return codigos;
+                });
+            } finally {
+                conexion.closeConnection();
+            }
+        });
+    }
+
+    /**
+     * Actualiza la imagen de varios productos en un único lote dentro de una transacción.
+     * Cada imagen se envía como flujo binario, sin crear Blobs intermedios.
+     * @param tx Transacción en la que se ejecuta el lote; el llamante decide cuándo confirmarla.
+     * @param imagenes Imágenes codificadas, indexadas por código de producto.
+     * @return Filas modificadas por cada imagen, en el orden de iteración del mapa.
+     * @throws SQLException en caso de error SQL.
+     */
+    public static int[] actualizarImagenes(Transaccion tx, Map<String, byte[]> imagenes) throws SQLException {
+        String consulta = "UPDATE productos SET imagen = ? WHERE codigo = ?";
+
+        try (PreparedStatement stmt = preparar(tx.getConnection(), consulta, TipoOperacion.MASIVA)) {
+            for (Map.Entry<String, byte[]> imagen : imagenes.entrySet()) {
+                stmt.setBinaryStream(1, new ByteArrayInputStream(imagen.getValue()), imagen.getValue().length);
+                stmt.setString(2, imagen.getKey());
+                stmt.addBatch();
+            }
+            return stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Cuenta los productos leyendo del primario, como {@link #abrirCursorOrdenado()}.
+     * @return Número de productos.
+     * @throws SQLException en caso de error SQL.
+     */
+    public static int contarProductos() throws SQLException {
+        return GobernadorEjecucion.getInstancia().ejecutar(TipoOperacion.LISTADO, () -> {
+            DBConnect conexion = conectar(TipoOperacion.LISTADO);
+            try (PreparedStatement stmt = preparar(conexion.getConnection(), "SELECT COUNT(*) FROM productos", TipoOperacion.LISTADO);
+                 ResultSet resultado = stmt.executeQuery()) {
+                resultado.next();
+                return resultado.getInt(1);
+            } finally {
+                conexion.closeConnection();
+            }
+        });
+    }
+
+    /**
+     * Abre un recorrido de todos los productos ordenados por código, leyendo del primario.
+     * El llamante debe cerrarlo; mientras está abierto ocupa una conexión.
+     * @return Cursor sobre los productos.
+     * @throws SQLException en caso de error SQL.
+     */
+    public static CursorProductos abrirCursorOrdenado() throws SQLException {
+        return new CursorProductos(conectar(TipoOperacion.MASIVA), GobernadorEjecucion.getInstancia().getTimeoutSegundos(TipoOperacion.MASIVA));
+    }
+
+    /**
+     * Inserta o actualiza varios productos en un único lote dentro de una transacción.
+     * La imagen de los productos existentes no se modifica. Cada cambio se audita al confirmar la transacción.
+     * @param tx Transacción en la que se ejecuta el lote; el llamante decide cuándo confirmarla.
+     * @param productos Productos a insertar o actualizar.
+     * @param anteriores Valores almacenados de los productos que ya existen, por código; los que no aparecen
+     *                   se auditan como inserciones.
+     * @throws SQLException en caso de error SQL.
+     */
+    public static void guardarProductos(Transaccion tx, List<Producto> productos, Map<String, Producto> anteriores)
+            throws SQLException {
+        String consulta = "INSERT INTO productos (codigo, nombre, precio, disponible) VALUES (?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE nombre = VALUES(nombre), precio = VALUES(precio), disponible = VALUES(disponible)";
+
+        try (PreparedStatement stmt = preparar(tx.getConnection(), consulta, TipoOperacion.MASIVA)) {
+            for (Producto producto : productos) {
+                stmt.setString(1, producto.getCodigo());
+                stmt.setString(2, producto.getNombre());
+                stmt.setFloat(3, producto.getPrecio());
+                stmt.setBoolean(4, producto.isDisponible());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        Consumer<CambioProducto> auditoria = auditoria(tx);
+        if (auditoria != null) {
+            for (Producto producto : productos) {
+                Producto anterior = anteriores.get(producto.getCodigo());
+                auditoria.accept(CambioProducto.ahora(
+                        anterior == null ? CambioProducto.Operacion.INSERCION : CambioProducto.Operacion.ACTUALIZACION,
+                        producto.getCodigo(), anterior == null ? null : CambioProducto.Estado.de(anterior),
+                        CambioProducto.Estado.de(producto)));
+            }
+        }
+    }
+
+    /**
+     * Elimina varios productos en un único lote dentro de una transacción.
+     * Cada borrado se audita al confirmar la transacción.
+     * @param tx Transacción en la que se ejecuta el lote; el llamante decide cuándo confirmarla.
+     * @param productos Productos a eliminar, con los valores almacenados que se registran como estado previo.
+     * @throws SQLException en caso de error SQL.
+     */
+    public static void eliminarProductos(Transaccion tx, List<Producto> productos) throws SQLException {
+        try (PreparedStatement stmt = preparar(tx.getConnection(), "DELETE FROM productos WHERE codigo = ?", TipoOperacion.MASIVA)) {
+            for (Producto producto : productos) {
+                stmt.setString(1, producto.getCodigo());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        Consumer<CambioProducto> auditoria = auditoria(tx);
+        if (auditoria != null) {
+            for (Producto producto : productos) {
+                auditoria.accept(CambioProducto.ahora(CambioProducto.Operacion.ELIMINACION, producto.getCodigo(),
+                        CambioProducto.Estado.de(producto), null));
+            }
+        }
+    }
+
+    /**
+     * Calcula, sin modificar nada, el efecto que tendría un reajuste masivo de precios.
+     * @param regla Regla de reajuste con sus filtros.
+     * @return Resumen con el número de productos afectados y los totales antes y después.
+     * @throws SQLException en caso de error SQL.
+     */
+    public static ResumenReajuste previsualizarReajuste(ReglaPrecio regla) throws SQLException {
+        return GobernadorEjecucion.getInstancia().ejecutar(TipoOperacion.LISTADO, () -> {
+            List<Object> parametros = new ArrayList<>();
+            String nuevoPrecio = expresionNuevoPrecio(regla, parametros);
+            String consulta = "SELECT COUNT(*), COALESCE(SUM(precio), 0), COALESCE(SUM(" + nuevoPrecio + "), 0) "
+                    + "FROM productos WHERE " + construirFiltro(regla, parametros);
+
+            DBConnect conexion = conectarLectura(TipoOperacion.LISTADO);
+            try {
+                return conexion.leer(conn -> {
+                    try (PreparedStatement stmt = preparar(conn, consulta, TipoOperacion.LISTADO)) {
+                        asignarParametros(stmt, 1, parametros);
+                        try (ResultSet resultado = stmt.executeQuery()) {
+                            resultado.next();
+                            return new ResumenReajuste(resultado.getInt(1), resultado.getDouble(2), resultado.getDouble(3));
+                        }
+                    }
+                });
+            } finally {
+                conexion.closeConnection();
+            }
+        });
+    }
+
+    /**
+     * Aplica un reajuste masivo de precios mediante UPDATEs por rangos de código.
+     * Cada lote se confirma en su propia transacción, de modo que si el proceso se interrumpe
+     * basta con volver a llamar al método pasando el último código confirmado. Las filas del lote se bloquean
+     * al buscar su límite, para que nadie las modifique entre esa búsqueda y el UPDATE, y, si la auditoría
+     * está activa, cada cambio de precio se registra al confirmar el lote.
+     * @param regla Regla de reajuste con sus filtros.
+     * @param tamanoLote Número máximo de productos actualizados por transacción.
+     * @param reanudarDesde Último código ya procesado (exclusivo), o null para empezar desde el principio.
+     * @param progreso Receptor del avance tras cada lote confirmado (puede ser null).
+     * @return Progreso final del reajuste.
+     * @throws SQLException en caso de error SQL; el lote en curso se deshace.
+     */
+    public static ProgresoReajuste aplicarReajuste(ReglaPrecio regla, int tamanoLote, String reanudarDesde,
+                                                   Consumer<ProgresoReajuste> progreso) throws SQLException {
+        return GobernadorEjecucion.getInstancia().ejecutar(TipoOperacion.MASIVA, () -> {
+            if (tamanoLote <= 0) {
+                throw new IllegalArgumentException("El tamaño de lote debe ser positivo");
+            }
+
+            // Parámetros del filtro, comunes a la búsqueda de límites y al UPDATE
+            List<Object> parametrosFiltro = new ArrayList<>();
+            String filtro = construirFiltro(regla, parametrosFiltro);
+            List<Object> parametrosPrecio = new ArrayList<>();
+            String nuevoPrecio = expresionNuevoPrecio(regla, parametrosPrecio);
+
+            String consultaLimite = "SELECT codigo, nombre, precio, disponible FROM productos WHERE codigo > ? AND " + filtro
+                    + " ORDER BY codigo LIMIT " + tamanoLote + " FOR UPDATE";
+            String consultaNuevosPrecios = "SELECT codigo, precio FROM productos WHERE codigo > ? AND codigo <= ?";
+            String consultaActualizacion = "UPDATE productos SET precio = " + nuevoPrecio
+                    + " WHERE codigo > ? AND codigo <= ? AND " + filtro;
+            String consultaTotal = "SELECT COUNT(*) FROM productos WHERE codigo > ? AND " + filtro;
+
+            String ultimoCodigo = reanudarDesde == null ? "" : reanudarDesde;
+            int lotes = 0;
+            int filasActualizadas = 0;
+            int filasTotales;
+
+            try (Transaccion tx = new Transaccion(Connection.TRANSACTION_READ_COMMITTED, TipoOperacion.MASIVA);
+                 PreparedStatement stmtTotal = preparar(tx.getConnection(), consultaTotal, TipoOperacion.MASIVA);
+                 PreparedStatement stmtLimite = preparar(tx.getConnection(), consultaLimite, TipoOperacion.MASIVA);
+                 PreparedStatement stmtActualizacion = preparar(tx.getConnection(), consultaActualizacion, TipoOperacion.MASIVA);
+                 PreparedStatement stmtNuevosPrecios = preparar(tx.getConnection(), consultaNuevosPrecios, TipoOperacion.MASIVA)) {
+
+                Consumer<CambioProducto> auditoria = auditoria(tx);
+                Map<String, CambioProducto.Estado> anteriores = new LinkedHashMap<>();
+
+                stmtTotal.setString(1, ultimoCodigo);
+                asignarParametros(stmtTotal, 2, parametrosFiltro);
+                try (ResultSet resultado = stmtTotal.executeQuery()) {
+                    resultado.next();
+                    filasTotales = resultado.getInt(1);
+                }
+
+                try {
+                    while (true) {
+                        // Busca el código que cierra el siguiente lote
+                        stmtLimite.setString(1, ultimoCodigo);
+                        asignarParametros(stmtLimite, 2, parametrosFiltro);
+                        String limiteLote = null;
+                        anteriores.clear();
+                        try (ResultSet resultado = stmtLimite.executeQuery()) {
+                            while (resultado.next()) {
+                                limiteLote = resultado.getString(1);
+                                if (auditoria != null) {
+                                    anteriores.put(limiteLote, new CambioProducto.Estado(
+                                            resultado.getString(2), resultado.getFloat(3), resultado.getBoolean(4)));
+                                }
+                            }
+                        }
+                        if (limiteLote == null) {
+                            break;
+                        }
+
+                        int indice = asignarParametros(stmtActualizacion, 1, parametrosPrecio);
+                        stmtActualizacion.setString(indice++, ultimoCodigo);
+                        stmtActualizacion.setString(indice++, limiteLote);
+                        asignarParametros(stmtActualizacion, indice, parametrosFiltro);
+                        int filas = stmtActualizacion.executeUpdate();
+                        if (auditoria != null) {
+                            auditarReajuste(stmtNuevosPrecios, ultimoCodigo, limiteLote, anteriores, auditoria);
+                        }
+                        tx.confirmar();
+
+                        ultimoCodigo = limiteLote;
+                        lotes++;
+                        filasActualizadas += filas;
+                        if (progreso != null) {
+                            progreso.accept(new ProgresoReajuste(lotes, filasActualizadas, filasTotales, ultimoCodigo));
+                        }
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Error en el reajuste de precios tras el código '" + ultimoCodigo + "': " + e.getMessage());
+                    throw e;
+                }
+            }
+
+            return new ProgresoReajuste(lotes, filasActualizadas, filasTotales, ultimoCodigo.isEmpty() ? null : ultimoCodigo);
+        });
+    }
+
+    /**
+     * Registra los cambios de precio de un lote del reajuste, comparando los precios ya actualizados
+     * con los leídos al bloquear las filas.
+     * @param stmt Consulta de los precios de un rango de códigos.
+     * @param desde Código inicial del rango (exclusivo).
+     * @param hasta Código final del rango (inclusivo).
+     * @param anteriores Valores de las filas del lote antes del UPDATE, por código.
+     * @param auditoria Destino de los cambios.
+     * @throws SQLException en caso de error SQL.
+     */
+    private static void auditarReajuste(PreparedStatement stmt, String desde, String hasta,
+                                        Map<String, CambioProducto.Estado> anteriores,
+                                        Consumer<CambioProducto> auditoria) throws SQLException {
+        stmt.setString(1, desde);
+        stmt.setString(2, hasta);
+        try (ResultSet resultado = stmt.executeQuery()) {
+            while (resultado.next()) {
+                String codigo = resultado.getString(1);
+                CambioProducto.Estado antes = anteriores.get(codigo);
+                float precio = resultado.getFloat(2);
+                if (antes != null && antes.getPrecio() != precio) {
+                    auditoria.accept(CambioProducto.ahora(CambioProducto.Operacion.ACTUALIZACION, codigo, antes,
+                            new CambioProducto.Estado(antes.getNombre(), precio, antes.isDisponible())));
+                }
+            }
+        }
+    }
+
+    /**
+     * Construye la expresión SQL del nuevo precio según la regla, con redondeo y sin bajar de cero.
+     * @param regla Regla de reajuste.
+     * @param parametros Lista a la que se añaden los parámetros de la expresión.
+     * @return Expresión SQL del nuevo precio.
+     */
+    private static String expresionNuevoPrecio(ReglaPrecio regla, List<Object> parametros) {
+        String ajuste = switch (regla.getTipo()) {
+            case PORCENTAJE -> "precio * (1 + ? / 100)";
+            case ABSOLUTO -> "precio + ?";
+        };
+        parametros.add(regla.getValor());
+        return "GREATEST(0, ROUND(" + ajuste + ", " + regla.getDecimales() + "))";
+    }
+
+    /**
+     * Construye la condición WHERE correspondiente a los filtros de la regla.
+     * @param regla Regla de reajuste.
+     * @param parametros Lista a la que se añaden los parámetros de la condición.
+     * @return Condición SQL (nunca vacía).
+     */
+    private static String construirFiltro(ReglaPrecio regla, List<Object> parametros) {
+        StringBuilder filtro = new StringBuilder("1 = 1");
+        if (regla.getPrefijoCodigo() != null && !regla.getPrefijoCodigo().isEmpty()) {
+            filtro.append(" AND codigo LIKE ?");
+            String prefijo = regla.getPrefijoCodigo()
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            parametros.add(prefijo + "%");
+        }
+        if (regla.getPrecioMinimo() != null) {
+            filtro.append(" AND precio >= ?");
+            parametros.add(regla.getPrecioMinimo());
+        }
+        if (regla.getPrecioMaximo() != null) {
+            filtro.append(" AND precio <= ?");
+            parametros.add(regla.getPrecioMaximo());
+        }
+        if (regla.getDisponible() != null) {
+            filtro.append(" AND disponible = ?");
+            parametros.add(regla.getDisponible());
+        }
+        return filtro.toString();
+    }
+
+    /**
+     * Asigna una lista de parámetros a una sentencia a partir de una posición.
+     * @param stmt Sentencia preparada.
+     * @param inicio Índice del primer parámetro a asignar.
+     * @param parametros Valores a asignar.
+     * @return Índice del siguiente parámetro libre.
+     * @throws SQLException en caso de error SQL.
+     */
+    private static int asignarParametros(PreparedStatement stmt, int inicio, List<Object> parametros) throws SQLException {
+        int indice = inicio;
+        for (Object parametro : parametros) {
+            stmt.setObject(indice++, parametro);
+        }
+        return indice;
+    }
 }
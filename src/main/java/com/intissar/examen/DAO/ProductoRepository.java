@@ -0,0 +1,56 @@
+package com.intissar.examen.DAO;
+
+import com.intissar.examen.Modelo.Producto;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Almacén de productos independiente del motor de almacenamiento.
+ * Cubre las operaciones CRUD y de listado que usa la interfaz gráfica.
+ *
+ * @see JdbcProductoRepository
+ * @see MemoriaProductoRepository
+ */
+public interface ProductoRepository {
+
+    /**
+     * Obtiene un producto usando su código.
+     * @param codigo El código único del producto.
+     * @return El producto si se encuentra, o null si no existe.
+     * @throws SQLException en caso de error de acceso a los datos.
+     */
+    Producto obtenerProductoPorCodigo(String codigo) throws SQLException;
+
+    /**
+     * Obtiene todos los productos.
+     * @return Lista con todos los productos.
+     * @throws SQLException en caso de error de acceso a los datos.
+     */
+    List<Producto> obtenerTodosProductos() throws SQLException;
+
+    /**
+     * Agrega un producto nuevo.
+     * @param producto El producto a agregar.
+     * @return true si se insertó, false si no se pudo insertar (por ejemplo, si el código ya existe).
+     * @throws SQLException en caso de error de acceso a los datos.
+     */
+    boolean agregarProducto(Producto producto) throws SQLException;
+
+    /**
+     * Actualiza el nombre, precio y disponibilidad de un producto existente.
+     * Si el producto no trae imagen se conserva la que tuviera.
+     * @param producto Producto con los datos actualizados.
+     * @return true si el producto existía y se actualizó, false en caso contrario.
+     * @throws SQLException en caso de error de acceso a los datos.
+     */
+    boolean actualizarProducto(Producto producto) throws SQLException;
+
+    /**
+     * Elimina un producto usando su código.
+     * @param codigo Código único del producto a eliminar.
+     * @return true si el producto existía y se eliminó, false en caso contrario.
+     * @throws SQLException en caso de error de acceso a los datos.
+     */
+    boolean eliminarProducto(String codigo) throws SQLException;
+}
@@ -0,0 +1,187 @@
+package com.intissar.examen.DAO;
+
+import com.intissar.examen.Auditoria.CambioProducto;
+import com.intissar.examen.Auditoria.RegistroAuditoria;
+import com.intissar.examen.Conexion.DBConnect;
+import com.intissar.examen.Conexion.Topologia;
+import com.intissar.examen.DAO.GobernadorEjecucion.TipoOperacion;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ámbito transaccional que permite que varias operaciones de {@link ProductoDAO} compartan
+ * una misma conexión y se confirmen de una sola vez.
+ * <p>
+ * Uso típico:
+ * <pre>
+ * try (Transaccion tx = new Transaccion()) {
+ *     ProductoDAO.actualizarProducto(tx, producto1);
+ *     ProductoDAO.eliminarProducto(tx, "NAR44");
+ *     tx.confirmar();
+ * }
+ * </pre>
+ * Si no se llama a {@link #confirmar()} antes de cerrar, los cambios pendientes se deshacen.
+ */
+public class Transaccion implements AutoCloseable {
+    // Logger para manejar errores
+    private static final Logger LOGGER = Logger.getLogger(Transaccion.class.getName());
+
+    private final DBConnect conexion;
+    // Cambios auditados que se publican solo cuando la transacción se confirma
+    private final List<CambioProducto> cambios = new ArrayList<>();
+
+    /**
+     * Trabajo a ejecutar dentro de una transacción.
+     *
+     * @param <T> Tipo del resultado del trabajo.
+     */
+    @FunctionalInterface
+    public interface Trabajo<T> {
+        /**
+         * Ejecuta las operaciones del trabajo.
+         *
+         * @param tx Transacción en curso.
+         * @return Resultado del trabajo.
+         * @throws SQLException Si alguna operación falla; la transacción se deshará.
+         */
+        T ejecutar(Transaccion tx) throws SQLException;
+    }
+
+    /**
+     * Abre una transacción con nivel de aislamiento READ COMMITTED.
+     *
+     * @throws SQLException Si no se puede abrir la conexión.
+     */
+    public Transaccion() throws SQLException {
+        this(Connection.TRANSACTION_READ_COMMITTED);
+    }
+
+    /**
+     * Abre una transacción con el nivel de aislamiento indicado.
+     *
+     * @param nivelAislamiento Una de las constantes {@code Connection.TRANSACTION_*}.
+     * @throws SQLException Si no se puede abrir la conexión o configurar la transacción.
+     */
+    public Transaccion(int nivelAislamiento) throws SQLException {
+        this(nivelAislamiento, TipoOperacion.ESCRITURA);
+    }
+
+    /**
+     * Abre una transacción con el nivel de aislamiento indicado, con los timeouts de conexión
+     * propios del tipo de operación que va a ejecutar.
+     *
+     * @param nivelAislamiento Una de las constantes {@code Connection.TRANSACTION_*}.
+     * @param tipo Tipo de las operaciones de la transacción; los procesos masivos necesitan esperar más.
+     * @throws SQLException Si no se puede abrir la conexión o configurar la transacción.
+     */
+    public Transaccion(int nivelAislamiento, TipoOperacion tipo) throws SQLException {
+        GobernadorEjecucion gobernador = GobernadorEjecucion.getInstancia();
+        conexion = new DBConnect(gobernador.getTimeoutConexionMs(tipo), gobernador.getTimeoutSocketMs(tipo));
+        try {
+            Connection conn = conexion.getConnection();
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(nivelAislamiento);
+        } catch (SQLException ex) {
+            conexion.closeConnection();
+            throw ex;
+        }
+    }
+
+    /**
+     * Ejecuta un trabajo en una transacción READ COMMITTED, confirmándolo si termina bien
+     * y deshaciéndolo si lanza una excepción.
+     *
+     * @param trabajo Operaciones a ejecutar.
+     * @param <T> Tipo del resultado.
+     * @return Resultado del trabajo.
+     * @throws SQLException Si falla alguna operación o la confirmación.
+     */
+    public static <T> T ejecutar(Trabajo<T> trabajo) throws SQLException {
+        return ejecutar(Connection.TRANSACTION_READ_COMMITTED, trabajo);
+    }
+
+    /**
+     * Ejecuta un trabajo en una transacción con el nivel de aislamiento indicado.
+     *
+     * @param nivelAislamiento Una de las constantes {@code Connection.TRANSACTION_*}.
+     * @param trabajo Operaciones a ejecutar.
+     * @param <T> Tipo del resultado.
+     * @return Resultado del trabajo.
+     * @throws SQLException Si falla alguna operación o la confirmación.
+     */
+    public static <T> T ejecutar(int nivelAislamiento, Trabajo<T> trabajo) throws SQLException {
+        try (Transaccion tx = new Transaccion(nivelAislamiento)) {
+            T resultado = trabajo.ejecutar(tx);
+            tx.confirmar();
+            return resultado;
+        }
+    }
+
+    /**
+     * Devuelve la conexión compartida por las operaciones de la transacción.
+     *
+     * @return La conexión de la transacción.
+     */
+    public Connection getConnection() {
+        return conexion.getConnection();
+    }
+
+    /**
+     * Confirma los cambios realizados hasta el momento.
+     * La transacción sigue abierta y puede usarse para un nuevo bloque de operaciones.
+     * Desde este momento las lecturas del cliente se dirigen al primario durante un breve periodo.
+     *
+     * @throws SQLException Si falla la confirmación.
+     */
+    public void confirmar() throws SQLException {
+        conexion.getConnection().commit();
+        Topologia.getInstancia().registrarEscritura();
+        if (!cambios.isEmpty()) {
+            RegistroAuditoria registro = RegistroAuditoria.getInstancia();
+            for (CambioProducto cambio : cambios) {
+                registro.registrar(cambio);
+            }
+            cambios.clear();
+        }
+    }
+
+    /**
+     * Deshace los cambios realizados desde la última confirmación.
+     *
+     * @throws SQLException Si falla la operación.
+     */
+    public void deshacer() throws SQLException {
+        cambios.clear();
+        conexion.getConnection().rollback();
+    }
+
+    /**
+     * Retiene un cambio auditado hasta que la transacción se confirme.
+     *
+     * @param cambio Cambio realizado dentro de la transacción.
+     */
+    void registrarCambio(CambioProducto cambio) {
+        cambios.add(cambio);
+    }
+
+    /**
+     * Deshace los cambios no confirmados y cierra la conexión.
+     *
+     * @throws SQLException Si ocurre un error al cerrar la conexión.
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            deshacer();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.WARNING, "No se pudo deshacer la transacción", ex);
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.intissar.examen.Importacion;
+
+import com.intissar.examen.DAO.CursorProductos;
+import com.intissar.examen.DAO.GobernadorEjecucion;
+import com.intissar.examen.DAO.ProductoDAO;
+import com.intissar.examen.DAO.Transaccion;
+import com.intissar.examen.Modelo.Producto;
+import com.intissar.examen.OpcionesLinea;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Concilia el catálogo completo que envía el proveedor con la tabla de productos aplicando solo las diferencias.
+ * <p>
+ * El feed es un CSV separado por punto y coma ({@code codigo;nombre;precio;disponible}, cabecera opcional)
+ * ordenado por código según {@link CursorProductos#ORDEN_CODIGOS}, sin distinguir mayúsculas. Se recorre a la vez
+ * que los productos almacenados, en el mismo orden, comparando un hash del contenido de cada fila (merge ordenado):
+ * ninguno de los dos lados se carga entero en memoria (solo los productos que hay que borrar) y el coste es
+ * proporcional al tamaño del feed. Un código del feed que solo difiere en mayúsculas de uno almacenado
+ * ({@code lim33} y {@code LIM33}) es el mismo producto y se actualiza conservando el código almacenado.
+ * Las inserciones y actualizaciones se aplican con upserts por lotes y los borrados con DELETE por lotes,
+ * confirmando cada lote; todos los cambios quedan en la auditoría.
+ * <p>
+ * Los códigos, en el feed y en la tabla, solo pueden tener letras ASCII y dígitos: la colación de la columna ignora
+ * también los acentos ({@code CAFÉ1} y {@code CAFE1} son la misma clave), y con esos caracteres el orden de la
+ * base de datos y el de Java dejan de coincidir. Un código con otros caracteres detiene la conciliación.
+ * <p>
+ * Las filas del feed con errores de formato no se aplican, y su producto tampoco se borra. Si el proceso
+ * se interrumpe, volver a lanzarlo completa la conciliación, porque los lotes ya confirmados no generan diferencias.
+ * <p>
+ * Los borrados se guardan en memoria y se aplican por lotes al final, cuando ya se ha recorrido el feed entero:
+ * si el feed está desordenado o tiene un código no válido, la conciliación se detiene sin haber borrado nada
+ * (las inserciones y actualizaciones ya confirmadas se conservan). Además, un feed truncado haría borrar casi
+ * todo el catálogo, así que los borrados tienen un límite: si superan el porcentaje indicado de los productos
+ * almacenados, la conciliación se detiene sin borrar ninguno. Con un límite del 100 % ({@code --forzar}) no hay
+ * comprobación. En simulación el límite no detiene el proceso: solo se avisa en el resumen.
+ */
+public class ConciliadorCatalogo {
+    private static final int LONGITUD_CODIGO = 5;
+    private static final int LONGITUD_NOMBRE = 50;
+    /**
+     * Porcentaje del catálogo que se puede borrar sin {@code --forzar}.
+     */
+    public static final int MAXIMO_BORRADOS_POR_DEFECTO = 10;
+
+    private final Path feed;
+    private final int tamanoLote;
+    private final boolean simular;
+    private final boolean aplicarBorrados;
+    private final int maximoBorrados;
+
+    /**
+     * Fila del feed. Si tiene errores de formato, {@code producto} es null.
+     */
+    private static class FilaFeed {
+        final String codigo;
+        final Producto producto;
+
+        FilaFeed(String codigo, Producto producto) {
+            this.codigo = codigo;
+            this.producto = producto;
+        }
+    }
+
+    /**
+     * Constructor del conciliador.
+     *
+     * @param feed Archivo CSV del proveedor.
+     * @param tamanoLote Cambios aplicados por transacción.
+     * @param simular true para calcular el resumen sin modificar la base de datos.
+     * @param aplicarBorrados false para no borrar los productos que falten en el feed.
+     * @param maximoBorrados Porcentaje máximo (0 a 100) de los productos almacenados que se pueden borrar;
+     *                       100 desactiva el límite.
+     */
+    public ConciliadorCatalogo(Path feed, int tamanoLote, boolean simular, boolean aplicarBorrados, int maximoBorrados) {
+        if (tamanoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser positivo");
+        }
+        if (maximoBorrados < 0 || maximoBorrados > 100) {
+            throw new IllegalArgumentException("El máximo de borrados debe ser un porcentaje entre 0 y 100: " + maximoBorrados);
+        }
+        this.feed = feed;
+        this.tamanoLote = tamanoLote;
+        this.simular = simular;
+        this.aplicarBorrados = aplicarBorrados;
+        this.maximoBorrados = maximoBorrados;
+    }
+
+    /**
+     * Punto de entrada desde la línea de comandos.
+     * Uso: {@code ConciliadorCatalogo --feed=catalogo.csv [--lote=500] [--simular] [--borrados=false]
+     * [--maximo-borrados=10] [--forzar]}.
+     *
+     * @param args Opciones con el formato de {@link OpcionesLinea}.
+     * @throws Exception Si la conciliación no puede completarse.
+     */
+    public static void main(String[] args) throws Exception {
+        OpcionesLinea opciones = OpcionesLinea.leer(args);
+        ConciliadorCatalogo conciliador = new ConciliadorCatalogo(
+                Paths.get(opciones.obligatoria("feed")),
+                opciones.entero("lote", 500),
+                opciones.booleano("simular", false),
+                opciones.booleano("borrados", true),
+                opciones.booleano("forzar", false) ? 100 : opciones.entero("maximo-borrados", MAXIMO_BORRADOS_POR_DEFECTO));
+        ResumenConciliacion resumen = conciliador.conciliar();
+
+        System.out.println((conciliador.simular ? "[SIMULACIÓN] " : "") + resumen);
+        resumen.getErrores().forEach(error -> System.out.println("  ERROR " + error));
+    }
+
+    /**
+     * Ejecuta la conciliación.
+     *
+     * @return Resumen de los cambios.
+     * @throws SQLException Si falla la lectura o la escritura en la base de datos, si alguno de los dos lados
+     *                      no está ordenado por código, si tiene un código con caracteres que no sean letras
+     *                      ASCII y dígitos o si los borrados superan el límite; los lotes ya confirmados se conservan.
+     */
+    public ResumenConciliacion conciliar() throws SQLException {
+        return GobernadorEjecucion.getInstancia().ejecutar(GobernadorEjecucion.TipoOperacion.MASIVA, () -> {
+            ResumenConciliacion resumen = new ResumenConciliacion();
+            List<Producto> guardar = new ArrayList<>(tamanoLote);
+            Map<String, Producto> anteriores = new LinkedHashMap<>();
+            List<Producto> borrar = new ArrayList<>();
+            long limiteBorrados = aplicarBorrados && maximoBorrados < 100
+                    ? (long) ProductoDAO.contarProductos() * maximoBorrados / 100 : Long.MAX_VALUE;
+            // Borrados pendientes hasta terminar el merge
+            List<Producto> aplazados = new ArrayList<>();
+
+            try (BufferedReader lector = Files.newBufferedReader(feed, StandardCharsets.UTF_8);
+                 CursorProductos cursor = ProductoDAO.abrirCursorOrdenado();
+                 Transaccion tx = simular ? null : new Transaccion(Connection.TRANSACTION_READ_COMMITTED, GobernadorEjecucion.TipoOperacion.MASIVA)) {
+
+                LectorFeed origen = new LectorFeed(lector, resumen);
+                FilaFeed fila = origen.siguiente();
+                Producto almacenado = siguienteAlmacenado(cursor, null, resumen);
+
+                while (fila != null || almacenado != null) {
+                    int comparacion = fila == null ? 1
+                            : almacenado == null ? -1
+                            : CursorProductos.ORDEN_CODIGOS.compare(fila.codigo, almacenado.getCodigo());
+
+                    if (comparacion < 0) {
+                        // Solo en el feed: producto nuevo
+                        if (fila.producto != null) {
+                            guardar.add(fila.producto);
+                            resumen.insertado(fila.codigo);
+                        }
+                        fila = origen.siguiente();
+                    } else if (comparacion > 0) {
+                        // Solo en la base de datos: ya no está en el catálogo
+                        if (aplicarBorrados) {
+                            if (resumen.getEliminados() == limiteBorrados) {
+                                if (!simular) {
+                                    throw new SQLException("La conciliación borraría más de " + limiteBorrados
+                                            + " productos, el " + maximoBorrados + " % del catálogo (¿feed incompleto?)."
+                                            + " No se ha borrado ninguno; use --forzar para aplicarlos");
+                                }
+                                resumen.limiteBorradosSuperado(limiteBorrados);
+                            }
+                            if (!simular) {
+                                aplazados.add(almacenado);
+                            }
+                            resumen.eliminado(almacenado.getCodigo());
+                        } else {
+                            resumen.borradoOmitido();
+                        }
+                        almacenado = siguienteAlmacenado(cursor, almacenado, resumen);
+                    } else {
+                        if (fila.producto != null) {
+                            if (hash(fila.producto) != hash(almacenado)) {
+                                String codigo = almacenado.getCodigo();
+                                guardar.add(codigo.equals(fila.codigo) ? fila.producto : new Producto(codigo,
+                                        fila.producto.getNombre(), fila.producto.getPrecio(), fila.producto.isDisponible(), (Blob) null));
+                                anteriores.put(codigo, almacenado);
+                                resumen.actualizado(codigo);
+                            } else {
+                                resumen.sinCambios();
+                            }
+                        }
+                        fila = origen.siguiente();
+                        almacenado = siguienteAlmacenado(cursor, almacenado, resumen);
+                    }
+
+                    if (guardar.size() >= tamanoLote) {
+                        aplicar(tx, guardar, anteriores, borrar);
+                    }
+                }
+                aplicar(tx, guardar, anteriores, borrar);
+                for (Producto producto : aplazados) {
+                    borrar.add(producto);
+                    if (borrar.size() >= tamanoLote) {
+                        aplicar(tx, guardar, anteriores, borrar);
+                    }
+                }
+                aplicar(tx, guardar, anteriores, borrar);
+            } catch (IOException e) {
+                throw new SQLException("No se pudo leer el feed " + feed, e);
+            }
+
+            resumen.terminar();
+            return resumen;
+        });
+    }
+
+    /**
+     * Aplica y confirma los cambios acumulados (no hace nada en simulación).
+     * Las filas almacenadas leídas del cursor se registran como estado previo en la auditoría.
+     */
+    private void aplicar(Transaccion tx, List<Producto> guardar, Map<String, Producto> anteriores, List<Producto> borrar)
+            throws SQLException {
+        if (tx != null && !(guardar.isEmpty() && borrar.isEmpty())) {
+            if (!guardar.isEmpty()) {
+                ProductoDAO.guardarProductos(tx, guardar, anteriores);
+            }
+            if (!borrar.isEmpty()) {
+                ProductoDAO.eliminarProductos(tx, borrar);
+            }
+            tx.confirmar();
+        }
+        guardar.clear();
+        anteriores.clear();
+        borrar.clear();
+    }
+
+    private static Producto siguienteAlmacenado(CursorProductos cursor, Producto anterior, ResumenConciliacion resumen)
+            throws SQLException {
+        Producto siguiente = cursor.siguiente();
+        if (siguiente != null) {
+            resumen.filaAlmacenada();
+            if (anterior != null && CursorProductos.ORDEN_CODIGOS.compare(siguiente.getCodigo(), anterior.getCodigo()) <= 0) {
+                throw new SQLException("La base de datos no devuelve los códigos en el orden esperado ("
+                        + anterior.getCodigo() + " antes de " + siguiente.getCodigo() + "); no se puede conciliar");
+            }
+        }
+        return siguiente;
+    }
+
+    /**
+     * Hash del contenido conciliable de un producto (FNV-1a de 64 bits sobre nombre, precio y disponibilidad).
+     */
+    static long hash(Producto producto) {
+        String contenido = producto.getNombre() + '\u0001' + Float.toString(producto.getPrecio()) + '\u0001' + producto.isDisponible();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < contenido.length(); i++) {
+            hash ^= contenido.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Lectura secuencial y validación de las filas del feed.
+     */
+    private static class LectorFeed {
+        private final BufferedReader lector;
+        private final ResumenConciliacion resumen;
+        private String codigoAnterior;
+        private long numeroLinea;
+
+        LectorFeed(BufferedReader lector, ResumenConciliacion resumen) {
+            this.lector = lector;
+            this.resumen = resumen;
+        }
+
+        FilaFeed siguiente() throws IOException, SQLException {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                numeroLinea++;
+                if (linea.isBlank() || (numeroLinea == 1 && linea.toLowerCase(Locale.ROOT).startsWith("codigo"))) {
+                    continue;
+                }
+
+                String[] campos = linea.split(";", -1);
+                String codigo = campos[0].strip();
+                if (codigo.isEmpty()) {
+                    resumen.error("línea " + numeroLinea + ": falta el código");
+                    continue;
+                }
+                if (!CursorProductos.esCodigoOrdenable(codigo)) {
+                    throw new SQLException("El feed tiene un código con caracteres distintos de letras ASCII y dígitos (línea "
+                            + numeroLinea + ": " + codigo + "); no se puede conciliar");
+                }
+                if (codigoAnterior != null && CursorProductos.ORDEN_CODIGOS.compare(codigo, codigoAnterior) <= 0) {
+                    throw new SQLException("El feed no está ordenado por código sin repetidos, sin distinguir mayúsculas (línea " + numeroLinea
+                            + ": " + codigo + " después de " + codigoAnterior + ")");
+                }
+                codigoAnterior = codigo;
+                resumen.filaFeed();
+
+                String error = validar(campos);
+                if (error != null) {
+                    resumen.error("línea " + numeroLinea + " (" + codigo + "): " + error);
+                    return new FilaFeed(codigo, null);
+                }
+                Producto producto = new Producto(codigo, campos[1].strip(),
+                        Float.parseFloat(campos[2].strip().replace(',', '.')),
+                        leerDisponible(campos[3]), (Blob) null);
+                return new FilaFeed(codigo, producto);
+            }
+            return null;
+        }
+
+        private static String validar(String[] campos) {
+            if (campos.length != 4) {
+                return "se esperaban 4 campos y hay " + campos.length;
+            }
+            if (campos[0].strip().length() > LONGITUD_CODIGO) {
+                return "código de más de " + LONGITUD_CODIGO + " caracteres";
+            }
+            String nombre = campos[1].strip();
+            if (nombre.isEmpty() || nombre.length() > LONGITUD_NOMBRE) {
+                return "nombre vacío o de más de " + LONGITUD_NOMBRE + " caracteres";
+            }
+            try {
+                float precio = Float.parseFloat(campos[2].strip().replace(',', '.'));
+                if (precio < 0 || Float.isNaN(precio) || Float.isInfinite(precio)) {
+                    return "precio no válido";
+                }
+            } catch (NumberFormatException e) {
+                return "precio no numérico";
+            }
+            String disponible = campos[3].strip().toLowerCase(Locale.ROOT);
+            if (!disponible.matches("0|1|true|false")) {
+                return "disponible debe ser 0, 1, true o false";
+            }
+            return null;
+        }
+
+        private static boolean leerDisponible(String valor) {
+            String disponible = valor.strip().toLowerCase(Locale.ROOT);
+            return disponible.equals("1") || disponible.equals("true");
+        }
+    }
+}
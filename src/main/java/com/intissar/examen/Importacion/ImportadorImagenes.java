@@ -0,0 +1,497 @@
+package com.intissar.examen.Importacion;
+
+import com.intissar.examen.DAO.GobernadorEjecucion;
+import com.intissar.examen.DAO.ProductoDAO;
+import com.intissar.examen.DAO.Transaccion;
+import com.intissar.examen.OpcionesLinea;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Importación masiva de imágenes de producto desde un directorio.
+ * <p>
+ * Cada archivo se asocia al producto cuyo código coincide con su nombre sin extensión (por ejemplo
+ * {@code LIM33.jpg}); si varios archivos dan el mismo código (como {@code LIM33.jpg} y {@code sub/LIM33.png})
+ * no se importa ninguno y se informan como fallos, porque no hay forma de saber cuál es el bueno.
+ * <p>
+ * Un grupo acotado de hilos lee, valida, decodifica y, si hace falta, reduce cada imagen. Un único hilo escritor
+ * las guarda por lotes con UPDATEs en streaming, confirmando cada lote por separado.
+ * <p>
+ * En el propio directorio se mantiene un manifiesto ({@value #MANIFIESTO}) con el tamaño, la fecha y el hash
+ * de cada archivo importado, de modo que al repetir la importación se omiten los que no han cambiado.
+ */
+public class ImportadorImagenes {
+    // Logger para manejar errores
+    private static final Logger LOGGER = Logger.getLogger(ImportadorImagenes.class.getName());
+
+    static final String MANIFIESTO = ".importacion-imagenes.properties";
+    private static final Set<String> EXTENSIONES = Set.of("png", "jpg", "jpeg", "gif", "bmp");
+    // Tamaño máximo de la columna imagen (BLOB de MariaDB)
+    private static final int MAXIMO_COLUMNA = 65535;
+    private static final long MAXIMO_ARCHIVO = 32L * 1024 * 1024;
+    // Un archivo pequeño puede declarar dimensiones enormes: se comprueban antes de decodificar
+    private static final long MAXIMO_PIXELES = 40_000_000L;
+    private static final int INTENTOS_REDUCCION = 6;
+    private static final int LOTES_POR_GUARDADO_MANIFIESTO = 20;
+    // Cada cuánto comprueban los hilos que el escritor sigue vivo mientras esperan sitio en la cola
+    private static final long ESPERA_COLA_MS = 500;
+
+    private final Path directorio;
+    private final int hilos;
+    private final int ladoMaximo;
+    private final int tamanoLote;
+
+    private final Map<String, String> manifiesto = new ConcurrentHashMap<>();
+    private final ResultadoImportacion resultado = new ResultadoImportacion();
+
+    /**
+     * Imagen ya procesada, lista para guardarse.
+     */
+    private static class ImagenPreparada {
+        final Path archivo;
+        final String codigo;
+        final byte[] datos;
+        final String huella;
+
+        ImagenPreparada(Path archivo, String codigo, byte[] datos, String huella) {
+            this.archivo = archivo;
+            this.codigo = codigo;
+            this.datos = datos;
+            this.huella = huella;
+        }
+    }
+
+    // Marca de fin para el hilo escritor
+    private static final ImagenPreparada FIN = new ImagenPreparada(null, null, null, null);
+
+    /**
+     * Constructor del importador.
+     *
+     * @param directorio Directorio con las imágenes (se recorre también en subdirectorios).
+     * @param hilos Número de hilos que procesan imágenes.
+     * @param ladoMaximo Lado máximo en píxeles al que se reducen las imágenes, o 0 para no reducirlas.
+     * @param tamanoLote Imágenes guardadas por transacción.
+     */
+    public ImportadorImagenes(Path directorio, int hilos, int ladoMaximo, int tamanoLote) {
+        if (hilos <= 0 || tamanoLote <= 0 || ladoMaximo < 0) {
+            throw new IllegalArgumentException("Parámetros de importación no válidos");
+        }
+        this.directorio = directorio;
+        this.hilos = hilos;
+        this.ladoMaximo = ladoMaximo;
+        this.tamanoLote = tamanoLote;
+    }
+
+    /**
+     * Punto de entrada de la importación desde la línea de comandos.
+     * Uso: {@code ImportadorImagenes --directorio=fotos [--hilos=4] [--lado=800] [--lote=50]}.
+     *
+     * @param args Opciones con el formato {@code --clave=valor}.
+     * @throws Exception Si la importación no puede completarse.
+     */
+    public static void main(String[] args) throws Exception {
+        OpcionesLinea opciones = OpcionesLinea.leer(args);
+        opciones.admitir("directorio", "hilos", "lado", "lote");
+
+        ImportadorImagenes importador = new ImportadorImagenes(
+                Paths.get(opciones.obligatoria("directorio")),
+                opciones.entero("hilos", Runtime.getRuntime().availableProcessors()),
+                opciones.entero("lado", 800),
+                opciones.entero("lote", 50));
+        ResultadoImportacion resultado = importador.importar();
+
+        System.out.println(resultado);
+        resultado.getFallos().forEach((archivo, motivo) -> System.out.println("  FALLO " + archivo + ": " + motivo));
+    }
+
+    /**
+     * Ejecuta la importación completa.
+     *
+     * @return Resultado con los contadores y los fallos.
+     * @throws SQLException Si no se pueden leer los códigos de producto o el gobernador rechaza el proceso.
+     * @throws IOException Si no se puede recorrer el directorio.
+     */
+    public ResultadoImportacion importar() throws SQLException, IOException {
+        // La columna codigo no distingue mayúsculas, y el código sacado del nombre del archivo va en mayúsculas
+        Set<String> codigos = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        codigos.addAll(ProductoDAO.obtenerCodigos());
+        cargarManifiesto();
+
+        return GobernadorEjecucion.getInstancia().ejecutar(GobernadorEjecucion.TipoOperacion.MASIVA, () -> {
+            // Primero se agrupan los archivos por código, para detectar los duplicados antes de procesar ninguno
+            Map<String, List<Path>> archivosPorCodigo = new LinkedHashMap<>();
+            try (Stream<Path> archivos = Files.walk(directorio)) {
+                archivos.filter(ImportadorImagenes::esImagen).forEach(archivo -> {
+                    resultado.archivoEncontrado();
+                    archivosPorCodigo.computeIfAbsent(codigoDe(archivo), codigo -> new ArrayList<>(1)).add(archivo);
+                });
+            } catch (IOException e) {
+                throw new SQLException("No se pudo recorrer el directorio " + directorio, e);
+            }
+
+            BlockingQueue<ImagenPreparada> preparadas = new ArrayBlockingQueue<>(tamanoLote * 2);
+            Thread escritor = new Thread(() -> escribir(preparadas), "importacion-escritor");
+            escritor.start();
+
+            // Cola acotada: si los hilos no dan abasto, el hilo que recorre los archivos procesa él mismo la imagen
+            ThreadPoolExecutor trabajadores = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(hilos * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+            try {
+                for (Map.Entry<String, List<Path>> entrada : archivosPorCodigo.entrySet()) {
+                    String codigo = entrada.getKey();
+                    List<Path> archivos = entrada.getValue();
+                    if (!codigos.contains(codigo)) {
+                        archivos.forEach(archivo -> resultado.sinProducto());
+                    } else if (archivos.size() > 1) {
+                        for (Path archivo : archivos) {
+                            resultado.fallo(archivo, "código " + codigo + " duplicado en " + archivos.size() + " archivos: " + archivos);
+                        }
+                    } else {
+                        Path archivo = archivos.get(0);
+                        trabajadores.execute(() -> procesar(archivo, codigo, preparadas, escritor));
+                    }
+                }
+            } finally {
+                trabajadores.shutdown();
+                esperar(trabajadores);
+                encolar(preparadas, FIN, escritor);
+                try {
+                    escritor.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // Si el escritor terminó antes de tiempo, lo que quedara en la cola no se ha guardado
+                for (ImagenPreparada pendiente : preparadas) {
+                    if (pendiente != FIN) {
+                        resultado.fallo(pendiente.archivo, "no se guardó: el hilo escritor terminó antes de tiempo");
+                    }
+                }
+                guardarManifiesto();
+            }
+            return resultado;
+        });
+    }
+
+    /**
+     * Lee, valida y prepara una imagen. Se ejecuta en los hilos trabajadores.
+     */
+    private void procesar(Path archivo, String codigo, BlockingQueue<ImagenPreparada> preparadas, Thread escritor) {
+        try {
+            BasicFileAttributes atributos = Files.readAttributes(archivo, BasicFileAttributes.class);
+            if (atributos.size() > MAXIMO_ARCHIVO) {
+                resultado.fallo(archivo, "archivo demasiado grande (" + atributos.size() + " bytes)");
+                return;
+            }
+            String anterior = manifiesto.get(codigo);
+            String firma = atributos.size() + ":" + atributos.lastModifiedTime().toMillis();
+            if (anterior != null && anterior.startsWith(firma + ":")) {
+                resultado.sinCambios();
+                return;
+            }
+
+            byte[] original = Files.readAllBytes(archivo);
+            resultado.leido(original.length);
+            String hash = sha256(original);
+            if (anterior != null && anterior.endsWith(":" + hash)) {
+                // Mismo contenido con otra fecha: solo se actualiza el manifiesto
+                manifiesto.put(codigo, firma + ":" + hash);
+                resultado.sinCambios();
+                return;
+            }
+
+            BufferedImage imagen = decodificar(original);
+            if (imagen == null) {
+                resultado.fallo(archivo, "formato de imagen no reconocido o archivo dañado");
+                return;
+            }
+            byte[] datos = ajustar(imagen, original, extension(archivo));
+            if (datos == null) {
+                resultado.fallo(archivo, "la imagen no cabe en la columna imagen (" + MAXIMO_COLUMNA + " bytes)");
+                return;
+            }
+            if (!encolar(preparadas, new ImagenPreparada(archivo, codigo, datos, firma + ":" + hash), escritor)) {
+                resultado.fallo(archivo, "no se guardó: el hilo escritor terminó antes de tiempo");
+            }
+        } catch (IOException | RuntimeException e) {
+            resultado.fallo(archivo, e.getMessage());
+        }
+    }
+
+    /**
+     * Decodifica una imagen comprobando antes, por la cabecera, que sus dimensiones no superan {@link #MAXIMO_PIXELES}.
+     *
+     * @return La imagen, o null si el formato no se reconoce.
+     * @throws IOException Si la imagen está dañada o es demasiado grande.
+     */
+    private static BufferedImage decodificar(byte[] datos) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(new ByteArrayInputStream(datos))) {
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+            if (!lectores.hasNext()) {
+                return null;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                long ancho = lector.getWidth(0);
+                long alto = lector.getHeight(0);
+                if (ancho * alto > MAXIMO_PIXELES) {
+                    throw new IOException("imagen demasiado grande (" + ancho + "x" + alto + " píxeles)");
+                }
+                return lector.read(0);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reduce la imagen al lado máximo y, si aun así no cabe en la columna, sigue reduciéndola.
+     *
+     * @return Imagen codificada, o null si no se consigue que quepa.
+     */
+    private byte[] ajustar(BufferedImage imagen, byte[] original, String extension) throws IOException {
+        int lado = Math.max(imagen.getWidth(), imagen.getHeight());
+        if ((ladoMaximo == 0 || lado <= ladoMaximo) && original.length <= MAXIMO_COLUMNA) {
+            return original;
+        }
+        if (ladoMaximo == 0) {
+            return null;
+        }
+
+        String formato = extension.equals("jpg") || extension.equals("jpeg") ? "jpg" : "png";
+        int objetivo = Math.min(lado, ladoMaximo);
+        for (int intento = 0; intento < INTENTOS_REDUCCION; intento++) {
+            byte[] datos = codificar(reducir(imagen, objetivo), formato);
+            if (datos.length <= MAXIMO_COLUMNA) {
+                return datos;
+            }
+            objetivo = objetivo * 3 / 4;
+        }
+        return null;
+    }
+
+    private static BufferedImage reducir(BufferedImage imagen, int ladoObjetivo) {
+        double escala = Math.min(1.0, (double) ladoObjetivo / Math.max(imagen.getWidth(), imagen.getHeight()));
+        int ancho = Math.max(1, (int) Math.round(imagen.getWidth() * escala));
+        int alto = Math.max(1, (int) Math.round(imagen.getHeight() * escala));
+        int tipo = imagen.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage reducida = new BufferedImage(ancho, alto, tipo);
+        Graphics2D grafico = reducida.createGraphics();
+        try {
+            grafico.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            grafico.drawImage(imagen, 0, 0, ancho, alto, null);
+        } finally {
+            grafico.dispose();
+        }
+        return reducida;
+    }
+
+    private static byte[] codificar(BufferedImage imagen, String formato) throws IOException {
+        BufferedImage origen = imagen;
+        if (formato.equals("jpg") && imagen.getColorModel().hasAlpha()) {
+            // JPEG no admite transparencia
+            origen = new BufferedImage(imagen.getWidth(), imagen.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D grafico = origen.createGraphics();
+            grafico.drawImage(imagen, 0, 0, null);
+            grafico.dispose();
+        }
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        if (!ImageIO.write(origen, formato, salida)) {
+            throw new IOException("No hay codificador para el formato " + formato);
+        }
+        return salida.toByteArray();
+    }
+
+    /**
+     * Bucle del hilo escritor: agrupa las imágenes preparadas y las guarda lote a lote.
+     */
+    private void escribir(BlockingQueue<ImagenPreparada> preparadas) {
+        List<ImagenPreparada> lote = new ArrayList<>(tamanoLote);
+        int lotesGuardados = 0;
+        boolean fin = false;
+        try {
+            while (!fin) {
+                ImagenPreparada imagen = preparadas.take();
+                // Se añade lo que ya esté preparado sin esperar, hasta completar el lote
+                while (imagen != null) {
+                    if (imagen == FIN) {
+                        fin = true;
+                        break;
+                    }
+                    lote.add(imagen);
+                    imagen = lote.size() < tamanoLote ? preparadas.poll() : null;
+                }
+                if (lote.size() >= tamanoLote || fin) {
+                    try {
+                        guardarLote(lote);
+                    } catch (RuntimeException e) {
+                        // Un fallo inesperado no debe parar al escritor: los trabajadores esperan a que vacíe la cola
+                        LOGGER.log(Level.SEVERE, "Error inesperado al guardar un lote de " + lote.size() + " imágenes", e);
+                        for (ImagenPreparada fallida : lote) {
+                            resultado.fallo(fallida.archivo, "error al guardar: " + e);
+                        }
+                    }
+                    lote.clear();
+                    if (++lotesGuardados % LOTES_POR_GUARDADO_MANIFIESTO == 0) {
+                        guardarManifiesto();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void guardarLote(List<ImagenPreparada> lote) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        Map<String, byte[]> imagenes = new LinkedHashMap<>();
+        for (ImagenPreparada imagen : lote) {
+            imagenes.put(imagen.codigo, imagen.datos);
+        }
+        try (Transaccion tx = new Transaccion(Connection.TRANSACTION_READ_COMMITTED, GobernadorEjecucion.TipoOperacion.MASIVA)) {
+            int[] filas = ProductoDAO.actualizarImagenes(tx, imagenes);
+            tx.confirmar();
+            // Los códigos del lote son distintos, así que cada imagen tiene su recuento en el mismo orden
+            for (int i = 0; i < lote.size(); i++) {
+                ImagenPreparada imagen = lote.get(i);
+                if (filas[i] == 0) {
+                    // El producto se borró mientras se importaba: no se da por importada ni se anota en el manifiesto
+                    resultado.fallo(imagen.archivo, "el producto " + imagen.codigo + " ya no existe");
+                } else {
+                    manifiesto.put(imagen.codigo, imagen.huella);
+                    resultado.importada(imagen.datos.length);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudo guardar un lote de " + lote.size() + " imágenes", e);
+            for (ImagenPreparada imagen : lote) {
+                resultado.fallo(imagen.archivo, "error al guardar: " + e.getMessage());
+            }
+        }
+    }
+
+    private void cargarManifiesto() throws IOException {
+        Path archivo = directorio.resolve(MANIFIESTO);
+        if (Files.exists(archivo)) {
+            Properties propiedades = new Properties();
+            try (InputStream entrada = Files.newInputStream(archivo)) {
+                propiedades.load(entrada);
+            }
+            propiedades.forEach((codigo, huella) -> manifiesto.put((String) codigo, (String) huella));
+        }
+    }
+
+    /**
+     * Guarda el manifiesto escribiendo primero un temporal, para no dejarlo a medias si el proceso se interrumpe.
+     */
+    private synchronized void guardarManifiesto() {
+        Properties propiedades = new Properties();
+        propiedades.putAll(manifiesto);
+        Path archivo = directorio.resolve(MANIFIESTO);
+        Path temporal = directorio.resolve(MANIFIESTO + ".tmp");
+        try (OutputStream salida = Files.newOutputStream(temporal)) {
+            propiedades.store(salida, "Imágenes importadas: codigo=tamaño:fecha:sha256");
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo guardar el manifiesto de importación", e);
+            return;
+        }
+        try {
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo guardar el manifiesto de importación", e);
+        }
+    }
+
+    private static boolean esImagen(Path archivo) {
+        return Files.isRegularFile(archivo) && EXTENSIONES.contains(extension(archivo));
+    }
+
+    private static String extension(Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        int punto = nombre.lastIndexOf('.');
+        return punto < 0 ? "" : nombre.substring(punto + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static String codigoDe(Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        int punto = nombre.lastIndexOf('.');
+        return (punto < 0 ? nombre : nombre.substring(0, punto)).toUpperCase(Locale.ROOT);
+    }
+
+    private static String sha256(byte[] datos) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(datos));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Pone una imagen en la cola del escritor, esperando a que haya sitio mientras el escritor siga vivo.
+     *
+     * @return true si se ha encolado; false si el escritor ha terminado o se ha interrumpido la espera.
+     */
+    private static boolean encolar(BlockingQueue<ImagenPreparada> cola, ImagenPreparada imagen, Thread escritor) {
+        try {
+            while (!cola.offer(imagen, ESPERA_COLA_MS, TimeUnit.MILLISECONDS)) {
+                if (!escritor.isAlive()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void esperar(ThreadPoolExecutor trabajadores) {
+        try {
+            while (!trabajadores.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.info("Esperando a que terminen los hilos de importación...");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
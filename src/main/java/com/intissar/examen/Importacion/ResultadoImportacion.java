@@ -0,0 +1,89 @@
+package com.intissar.examen.Importacion;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de una importación masiva de imágenes. Se actualizan desde varios hilos a la vez.
+ */
+public class ResultadoImportacion {
+    private final LongAdder archivos = new LongAdder();
+    private final LongAdder importadas = new LongAdder();
+    private final LongAdder sinCambios = new LongAdder();
+    private final LongAdder sinProducto = new LongAdder();
+    private final LongAdder bytesLeidos = new LongAdder();
+    private final LongAdder bytesEscritos = new LongAdder();
+    private final Map<Path, String> fallos = new ConcurrentHashMap<>();
+    private final long inicioNanos = System.nanoTime();
+
+    void archivoEncontrado() {
+        archivos.increment();
+    }
+
+    void importada(long bytes) {
+        importadas.increment();
+        bytesEscritos.add(bytes);
+    }
+
+    void sinCambios() {
+        sinCambios.increment();
+    }
+
+    void sinProducto() {
+        sinProducto.increment();
+    }
+
+    void leido(long bytes) {
+        bytesLeidos.add(bytes);
+    }
+
+    void fallo(Path archivo, String motivo) {
+        fallos.put(archivo, motivo);
+    }
+
+    /**
+     * @return Archivos de imagen encontrados.
+     */
+    public long getArchivos() {
+        return archivos.sum();
+    }
+
+    /**
+     * @return Imágenes guardadas en la base de datos.
+     */
+    public long getImportadas() {
+        return importadas.sum();
+    }
+
+    /**
+     * @return Archivos omitidos por no haber cambiado desde la última importación.
+     */
+    public long getSinCambios() {
+        return sinCambios.sum();
+    }
+
+    /**
+     * @return Archivos cuyo nombre no corresponde a ningún producto.
+     */
+    public long getSinProducto() {
+        return sinProducto.sum();
+    }
+
+    /**
+     * @return Archivos que no se han podido importar, con el motivo.
+     */
+    public Map<Path, String> getFallos() {
+        return fallos;
+    }
+
+    @Override
+    public String toString() {
+        double segundos = Math.max(1e-3, (System.nanoTime() - inicioNanos) / 1e9);
+        return String.format("%d archivos en %.1f s (%.1f archivos/s, %.1f MB/s leídos): %d importadas, "
+                        + "%d sin cambios, %d sin producto, %d fallidas, %.1f MB escritos",
+                getArchivos(), segundos, getArchivos() / segundos, bytesLeidos.sum() / segundos / (1024 * 1024),
+                getImportadas(), getSinCambios(), getSinProducto(), fallos.size(), bytesEscritos.sum() / (1024.0 * 1024));
+    }
+}
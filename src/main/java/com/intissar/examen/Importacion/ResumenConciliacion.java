@@ -0,0 +1,175 @@
+package com.intissar.examen.Importacion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resumen de los cambios detectados (y aplicados, salvo en simulación) al conciliar el catálogo del proveedor.
+ */
+public class ResumenConciliacion {
+    // Códigos de ejemplo que se guardan de cada tipo de cambio
+    private static final int MAXIMO_EJEMPLOS = 20;
+    // Mensajes de error que se conservan; el resto solo se cuenta
+    private static final int MAXIMO_ERRORES = 100;
+
+    private long filasFeed;
+    private long filasAlmacenadas;
+    private long sinCambios;
+    private long insertados;
+    private long actualizados;
+    private long eliminados;
+    private long borradosOmitidos;
+    private long numeroErrores;
+    // Límite de borrados superado en una simulación, o -1
+    private long limiteBorrados = -1;
+    private final List<String> errores = new ArrayList<>();
+    private final List<String> ejemplosInsertados = new ArrayList<>();
+    private final List<String> ejemplosActualizados = new ArrayList<>();
+    private final List<String> ejemplosEliminados = new ArrayList<>();
+    private final long inicioNanos = System.nanoTime();
+    private long finNanos;
+
+    void filaFeed() {
+        filasFeed++;
+    }
+
+    void filaAlmacenada() {
+        filasAlmacenadas++;
+    }
+
+    void sinCambios() {
+        sinCambios++;
+    }
+
+    void insertado(String codigo) {
+        insertados++;
+        ejemplo(ejemplosInsertados, codigo);
+    }
+
+    void actualizado(String codigo) {
+        actualizados++;
+        ejemplo(ejemplosActualizados, codigo);
+    }
+
+    void eliminado(String codigo) {
+        eliminados++;
+        ejemplo(ejemplosEliminados, codigo);
+    }
+
+    void borradoOmitido() {
+        borradosOmitidos++;
+    }
+
+    void limiteBorradosSuperado(long limite) {
+        limiteBorrados = limite;
+    }
+
+    void error(String mensaje) {
+        numeroErrores++;
+        if (errores.size() < MAXIMO_ERRORES) {
+            errores.add(mensaje);
+        }
+    }
+
+    void terminar() {
+        finNanos = System.nanoTime();
+    }
+
+    private static void ejemplo(List<String> ejemplos, String codigo) {
+        if (ejemplos.size() < MAXIMO_EJEMPLOS) {
+            ejemplos.add(codigo);
+        }
+    }
+
+    /**
+     * @return Filas leídas del feed.
+     */
+    public long getFilasFeed() {
+        return filasFeed;
+    }
+
+    /**
+     * @return Productos leídos de la base de datos.
+     */
+    public long getFilasAlmacenadas() {
+        return filasAlmacenadas;
+    }
+
+    /**
+     * @return Productos idénticos en el feed y en la base de datos.
+     */
+    public long getSinCambios() {
+        return sinCambios;
+    }
+
+    /**
+     * @return Productos nuevos.
+     */
+    public long getInsertados() {
+        return insertados;
+    }
+
+    /**
+     * @return Productos modificados.
+     */
+    public long getActualizados() {
+        return actualizados;
+    }
+
+    /**
+     * @return Productos que ya no están en el feed y se han eliminado.
+     */
+    public long getEliminados() {
+        return eliminados;
+    }
+
+    /**
+     * @return true si, en una simulación, los borrados superan el límite, de modo que sin simular la
+     *         conciliación se detendría sin borrar nada.
+     */
+    public boolean isLimiteBorradosSuperado() {
+        return limiteBorrados >= 0;
+    }
+
+    /**
+     * @return Número de filas del feed con errores de formato (las filas afectadas no se tocan).
+     */
+    public long getNumeroErrores() {
+        return numeroErrores;
+    }
+
+    /**
+     * @return Los primeros mensajes de error de formato del feed.
+     */
+    public List<String> getErrores() {
+        return errores;
+    }
+
+    @Override
+    public String toString() {
+        double segundos = ((finNanos == 0 ? System.nanoTime() : finNanos) - inicioNanos) / 1e9;
+        StringBuilder texto = new StringBuilder(String.format(
+                "%d filas en el feed, %d en la base de datos (%.1f s): %d sin cambios, %d insertados, %d actualizados, %d eliminados",
+                filasFeed, filasAlmacenadas, segundos, sinCambios, insertados, actualizados, eliminados));
+        if (borradosOmitidos > 0) {
+            texto.append(", ").append(borradosOmitidos).append(" borrados omitidos");
+        }
+        if (numeroErrores > 0) {
+            texto.append(", ").append(numeroErrores).append(" filas con errores");
+        }
+        if (limiteBorrados >= 0) {
+            texto.append("\n  AVISO: los borrados superan el límite de ").append(limiteBorrados)
+                    .append(" productos; sin --forzar no se aplicaría ninguno");
+        }
+        if (!ejemplosInsertados.isEmpty()) {
+            texto.append("\n  insertados: ").append(String.join(", ", ejemplosInsertados));
+        }
+        if (!ejemplosActualizados.isEmpty()) {
+            texto.append("\n  actualizados: ").append(String.join(", ", ejemplosActualizados));
+        }
+        if (!ejemplosEliminados.isEmpty()) {
+            texto.append("\n  eliminados: ").append(String.join(", ", ejemplosEliminados));
+        }
+        return texto.toString();
+    }
+}
@@ -1,5 +1,9 @@
 package com.intissar.examen;
 
+import com.intissar.examen.Controles.ProductosController;
+import com.intissar.examen.DAO.JdbcProductoRepository;
+import com.intissar.examen.DAO.MemoriaProductoRepository;
+import com.intissar.examen.DAO.ProductoRepository;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -28,6 +32,18 @@ public class MainApp extends Application {
     public void start(Stage stage) throws IOException {
         // Cargar el archivo FXML
         FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/com/intissar/examen/xml/main.fxml"));
+        // Inyecta el repositorio en el controlador
+        ProductoRepository repositorio = crearRepositorio();
+        fxmlLoader.setControllerFactory(tipo -> {
+            if (tipo == ProductosController.class) {
+                return new ProductosController(repositorio);
+            }
+            try {
+                return tipo.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("No se pudo crear el controlador " + tipo.getName(), e);
+            }
+        });
         Scene scene = new Scene(fxmlLoader.load());
 
         // Configurar el escenario
@@ -46,6 +62,21 @@ public class MainApp extends Application {
         stage.show();
     }
 
+    /**
+     * Crea el repositorio de productos según el parámetro {@code --repositorio}:
+     * {@code memoria} para trabajar sin base de datos, o la base de datos en cualquier otro caso.
+     *
+     * @return el repositorio de productos
+     */
+    private ProductoRepository crearRepositorio() {
+        String tipo = getParameters().getNamed().getOrDefault("repositorio", "jdbc");
+        if (tipo.equalsIgnoreCase("memoria")) {
+            LOGGER.info("Usando el repositorio de productos en memoria");
+            return new MemoriaProductoRepository();
+        }
+        return new JdbcProductoRepository();
+    }
+
     /**
      * Función main donde se lanza la aplicación
      *
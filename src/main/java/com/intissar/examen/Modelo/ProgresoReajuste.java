@@ -0,0 +1,63 @@
+package com.intissar.examen.Modelo;
+
+/**
+ * Estado de avance de un reajuste masivo de precios.
+ * El último código confirmado sirve para reanudar el proceso si se interrumpe.
+ */
+public class ProgresoReajuste {
+    private final int lotesCompletados;
+    private final int filasActualizadas;
+    private final int filasTotales;
+    private final String ultimoCodigo;
+
+    /**
+     * Constructor del progreso.
+     *
+     * @param lotesCompletados Lotes confirmados hasta el momento.
+     * @param filasActualizadas Productos actualizados hasta el momento.
+     * @param filasTotales Productos afectados estimados al inicio del proceso.
+     * @param ultimoCodigo Último código incluido en un lote ya confirmado.
+     */
+    public ProgresoReajuste(int lotesCompletados, int filasActualizadas, int filasTotales, String ultimoCodigo) {
+        this.lotesCompletados = lotesCompletados;
+        this.filasActualizadas = filasActualizadas;
+        this.filasTotales = filasTotales;
+        this.ultimoCodigo = ultimoCodigo;
+    }
+
+    /**
+     * @return Lotes confirmados.
+     */
+    public int getLotesCompletados() {
+        return lotesCompletados;
+    }
+
+    /**
+     * @return Productos actualizados.
+     */
+    public int getFilasActualizadas() {
+        return filasActualizadas;
+    }
+
+    /**
+     * @return Productos afectados estimados al inicio.
+     */
+    public int getFilasTotales() {
+        return filasTotales;
+    }
+
+    /**
+     * Código a partir del cual reanudar: se pasa tal cual a {@code ProductoDAO.aplicarReajuste}.
+     *
+     * @return Último código confirmado, o null si todavía no se ha confirmado ningún lote.
+     */
+    public String getUltimoCodigo() {
+        return ultimoCodigo;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Lote %d: %d/%d productos actualizados (último código: %s)",
+                lotesCompletados, filasActualizadas, filasTotales, ultimoCodigo);
+    }
+}
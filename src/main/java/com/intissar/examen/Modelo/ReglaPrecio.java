@@ -0,0 +1,147 @@
+package com.intissar.examen.Modelo;
+
+/**
+ * Regla de reajuste masivo de precios.
+ * Define el tipo de ajuste (porcentual o absoluto), el redondeo y los filtros
+ * que determinan qué productos se ven afectados.
+ */
+public class ReglaPrecio {
+
+    /**
+     * Tipos de ajuste que se pueden aplicar sobre el precio.
+     */
+    public enum TipoAjuste {
+        /** Incrementa o reduce el precio en un porcentaje (10 = +10 %, -5 = -5 %). */
+        PORCENTAJE,
+        /** Suma o resta una cantidad fija al precio. */
+        ABSOLUTO
+    }
+
+    private final TipoAjuste tipo;
+    private final double valor;
+    private final int decimales;
+
+    // Filtros opcionales (null = sin filtro)
+    private String prefijoCodigo;
+    private Double precioMinimo;
+    private Double precioMaximo;
+    private Boolean disponible;
+
+    /**
+     * Crea una regla de reajuste sin filtros.
+     *
+     * @param tipo Tipo de ajuste a aplicar.
+     * @param valor Porcentaje o cantidad del ajuste (puede ser negativo).
+     * @param decimales Número de decimales al que se redondea el nuevo precio.
+     */
+    public ReglaPrecio(TipoAjuste tipo, double valor, int decimales) {
+        if (tipo == null) {
+            throw new IllegalArgumentException("El tipo de ajuste es obligatorio");
+        }
+        if (decimales < 0) {
+            throw new IllegalArgumentException("El número de decimales no puede ser negativo");
+        }
+        this.tipo = tipo;
+        this.valor = valor;
+        this.decimales = decimales;
+    }
+
+    /**
+     * Obtiene el tipo de ajuste.
+     *
+     * @return El tipo de ajuste.
+     */
+    public TipoAjuste getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Obtiene el valor del ajuste.
+     *
+     * @return El porcentaje o la cantidad del ajuste.
+     */
+    public double getValor() {
+        return valor;
+    }
+
+    /**
+     * Obtiene el número de decimales del redondeo.
+     *
+     * @return Los decimales del nuevo precio.
+     */
+    public int getDecimales() {
+        return decimales;
+    }
+
+    /**
+     * Obtiene el prefijo de código por el que se filtra.
+     *
+     * @return El prefijo, o null si no se filtra por código.
+     */
+    public String getPrefijoCodigo() {
+        return prefijoCodigo;
+    }
+
+    /**
+     * Limita la regla a los productos cuyo código empieza por el prefijo indicado.
+     *
+     * @param prefijoCodigo Prefijo del código, o null para no filtrar.
+     */
+    public void setPrefijoCodigo(String prefijoCodigo) {
+        this.prefijoCodigo = prefijoCodigo;
+    }
+
+    /**
+     * Obtiene el precio mínimo (inclusive) del filtro.
+     *
+     * @return El precio mínimo, o null si no hay límite inferior.
+     */
+    public Double getPrecioMinimo() {
+        return precioMinimo;
+    }
+
+    /**
+     * Limita la regla a los productos con precio mayor o igual al indicado.
+     *
+     * @param precioMinimo Precio mínimo, o null para no filtrar.
+     */
+    public void setPrecioMinimo(Double precioMinimo) {
+        this.precioMinimo = precioMinimo;
+    }
+
+    /**
+     * Obtiene el precio máximo (inclusive) del filtro.
+     *
+     * @return El precio máximo, o null si no hay límite superior.
+     */
+    public Double getPrecioMaximo() {
+        return precioMaximo;
+    }
+
+    /**
+     * Limita la regla a los productos con precio menor o igual al indicado.
+     *
+     * @param precioMaximo Precio máximo, o null para no filtrar.
+     */
+    public void setPrecioMaximo(Double precioMaximo) {
+        this.precioMaximo = precioMaximo;
+    }
+
+    /**
+     * Obtiene el filtro de disponibilidad.
+     *
+     * @return true/false para filtrar por disponibilidad, o null si no se filtra.
+     */
+    public Boolean getDisponible() {
+        return disponible;
+    }
+
+    /**
+     * Limita la regla a los productos disponibles o no disponibles.
+     *
+     * @param disponible Disponibilidad requerida, o null para no filtrar.
+     */
+    public void setDisponible(Boolean disponible) {
+        this.disponible = disponible;
+    }
+}
@@ -0,0 +1,58 @@
+package com.intissar.examen.Modelo;
+
+/**
+ * Resultado de la previsualización de un reajuste masivo de precios.
+ * No modifica la base de datos: solo indica a cuántos productos afectaría y cómo cambiarían los totales.
+ */
+public class ResumenReajuste {
+    private final int filasAfectadas;
+    private final double totalActual;
+    private final double totalNuevo;
+
+    /**
+     * Constructor del resumen.
+     *
+     * @param filasAfectadas Número de productos que cumplen los filtros de la regla.
+     * @param totalActual Suma de los precios actuales de esos productos.
+     * @param totalNuevo Suma de los precios que tendrían tras aplicar la regla.
+     */
+    public ResumenReajuste(int filasAfectadas, double totalActual, double totalNuevo) {
+        this.filasAfectadas = filasAfectadas;
+        this.totalActual = totalActual;
+        this.totalNuevo = totalNuevo;
+    }
+
+    /**
+     * @return Número de productos afectados.
+     */
+    public int getFilasAfectadas() {
+        return filasAfectadas;
+    }
+
+    /**
+     * @return Suma de los precios actuales.
+     */
+    public double getTotalActual() {
+        return totalActual;
+    }
+
+    /**
+     * @return Suma de los precios tras el reajuste.
+     */
+    public double getTotalNuevo() {
+        return totalNuevo;
+    }
+
+    /**
+     * @return Diferencia entre el total nuevo y el actual.
+     */
+    public double getDiferencia() {
+        return totalNuevo - totalActual;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d productos afectados, total actual %.2f, total nuevo %.2f (%+.2f)",
+                filasAfectadas, totalActual, totalNuevo, getDiferencia());
+    }
+}
@@ -0,0 +1,137 @@
+package com.intissar.examen;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opciones de línea de comandos de las herramientas sin interfaz gráfica (generador de carga, importaciones,
+ * consulta de auditoría).
+ * <p>
+ * Cada argumento tiene el formato {@code --clave=valor}; un argumento sin valor ({@code --clave}) equivale a
+ * {@code --clave=true}. Si una clave se repite, vale la última.
+ */
+public final class OpcionesLinea {
+    private final Map<String, String> opciones;
+
+    private OpcionesLinea(Map<String, String> opciones) {
+        this.opciones = opciones;
+    }
+
+    /**
+     * Lee las opciones de los argumentos del programa.
+     *
+     * @param args Argumentos recibidos por {@code main}.
+     * @return Las opciones leídas.
+     * @throws IllegalArgumentException Si algún argumento no empieza por {@code --} o no tiene clave.
+     */
+    public static OpcionesLinea leer(String[] args) {
+        Map<String, String> opciones = new LinkedHashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            String clave = !arg.startsWith("--") ? "" : igual < 0 ? arg.substring(2) : arg.substring(2, igual);
+            if (clave.isEmpty()) {
+                throw new IllegalArgumentException("Opción no válida (se espera --clave=valor): " + arg);
+            }
+            opciones.put(clave, igual < 0 ? "true" : arg.substring(igual + 1));
+        }
+        return new OpcionesLinea(opciones);
+    }
+
+    /**
+     * Comprueba que no se ha pasado ninguna opción fuera de las indicadas.
+     *
+     * @param claves Claves admitidas.
+     * @throws IllegalArgumentException Si hay alguna opción desconocida.
+     */
+    public void admitir(String... claves) {
+        for (String clave : opciones.keySet()) {
+            if (!List.of(claves).contains(clave)) {
+                throw new IllegalArgumentException("Opción desconocida: --" + clave);
+            }
+        }
+    }
+
+    /**
+     * @param clave Clave de la opción.
+     * @return true si se ha pasado la opción.
+     */
+    public boolean contiene(String clave) {
+        return opciones.containsKey(clave);
+    }
+
+    /**
+     * @param clave Clave de la opción.
+     * @param porDefecto Valor si no se ha pasado la opción.
+     * @return El valor de la opción o el valor por defecto.
+     */
+    public String texto(String clave, String porDefecto) {
+        return opciones.getOrDefault(clave, porDefecto);
+    }
+
+    /**
+     * @param clave Clave de una opción obligatoria.
+     * @return El valor de la opción.
+     * @throws IllegalArgumentException Si no se ha pasado la opción.
+     */
+    public String obligatoria(String clave) {
+        String valor = opciones.get(clave);
+        if (valor == null) {
+            throw new IllegalArgumentException("Falta la opción --" + clave);
+        }
+        return valor;
+    }
+
+    /**
+     * @param clave Clave de la opción.
+     * @param porDefecto Valor si no se ha pasado la opción.
+     * @return El valor de la opción como entero.
+     * @throws IllegalArgumentException Si el valor no es un número entero.
+     */
+    public int entero(String clave, int porDefecto) {
+        return (int) numero(clave, porDefecto, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param clave Clave de la opción.
+     * @param porDefecto Valor si no se ha pasado la opción.
+     * @return El valor de la opción como entero largo.
+     * @throws IllegalArgumentException Si el valor no es un número entero.
+     */
+    public long largo(String clave, long porDefecto) {
+        return numero(clave, porDefecto, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param clave Clave de la opción.
+     * @param porDefecto Valor si no se ha pasado la opción.
+     * @return El valor de la opción como booleano.
+     * @throws IllegalArgumentException Si el valor no es {@code true} ni {@code false}.
+     */
+    public boolean booleano(String clave, boolean porDefecto) {
+        String valor = opciones.get(clave);
+        if (valor == null) {
+            return porDefecto;
+        }
+        if (!valor.equalsIgnoreCase("true") && !valor.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("La opción --" + clave + " debe ser true o false: " + valor);
+        }
+        return Boolean.parseBoolean(valor);
+    }
+
+    private long numero(String clave, long porDefecto, long minimo, long maximo) {
+        String valor = opciones.get(clave);
+        if (valor == null) {
+            return porDefecto;
+        }
+        try {
+            long numero = Long.parseLong(valor.strip());
+            if (numero < minimo || numero > maximo) {
+                throw new NumberFormatException();
+            }
+            return numero;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("La opción --" + clave + " debe ser un número entero: " + valor);
+        }
+    }
+}
@@ -2,6 +2,8 @@ module com.example.demo1 {
         requires javafx.controls;
         requires javafx.fxml;
         requires java.sql;
+        requires java.sql.rowset;
+        requires java.desktop;
 
         opens com.intissar.examen.Controles to javafx.fxml;
         exports com.intissar.examen;
@@ -9,6 +11,9 @@ module com.example.demo1 {
         exports com.intissar.examen.DAO;
     exports com.intissar.examen.Conexion;
     exports com.intissar.examen.Controles;
+    exports com.intissar.examen.Carga;
+    exports com.intissar.examen.Auditoria;
+    exports com.intissar.examen.Importacion;
 
 
 
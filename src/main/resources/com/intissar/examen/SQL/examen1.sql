@@ -14,6 +14,19 @@ CREATE TABLE `productos` (
 	PRIMARY KEY (`codigo`)
 ) ENGINE = InnoDB AUTO_INCREMENT = 10 DEFAULT CHARACTER SET = latin1 COLLATE = latin1_spanish_ci;
 
+CREATE TABLE `auditoria_productos` (
+	`id` bigint NOT NULL AUTO_INCREMENT,
+	`instante` timestamp(3) NOT NULL,
+	`usuario` varchar(50) NULL,
+	`operacion` varchar(15) NOT NULL,
+	`codigo` varchar(5) NOT NULL,
+	`antes` varchar(255) NULL,
+	`despues` varchar(255) NULL,
+	PRIMARY KEY (`id`)
+) ENGINE = InnoDB DEFAULT CHARACTER SET = latin1 COLLATE = latin1_spanish_ci;
+
+CREATE INDEX `idx_auditoria_codigo` ON `auditoria_productos` (`codigo`, `instante`);
+
 INSERT INTO `productos` ( `codigo`,`nombre`, `precio`, `disponible`)
 VALUES
 	('LIM33','LIMONES',1.89,1),
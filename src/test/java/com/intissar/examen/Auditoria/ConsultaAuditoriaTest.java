@@ -0,0 +1,64 @@
+package com.intissar.examen.Auditoria;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de los filtros de la consulta de auditoría sobre ficheros escritos a mano en un directorio temporal.
+ */
+class ConsultaAuditoriaTest {
+    @TempDir
+    Path directorio;
+
+    @Test
+    void descartarFicherosAnterioresAlInicioDelSiguiente() throws IOException {
+        // El cambio de t=3000 en el primer fichero es imposible: solo se encuentra si el fichero no se descarta
+        escribir(1000, cambio(1000, "LIM33"), cambio(1500, "LIM33"), cambio(3000, "LIM33"));
+        // Un cambio que esperaba en la cola al rotar lleva un instante anterior al inicio de su fichero
+        escribir(2000, cambio(1999, "LIM33"), cambio(2500, "LIM33"));
+        escribir(4000, cambio(4000, "LIM33"));
+
+        assertEquals(2, ConsultaAuditoria.consultar(directorio, null, 2500, Long.MAX_VALUE));
+        // Desde 1999 el primer fichero no se puede descartar, porque el segundo empieza después
+        assertEquals(4, ConsultaAuditoria.consultar(directorio, null, 1999, Long.MAX_VALUE));
+        assertEquals(2, ConsultaAuditoria.consultar(directorio, null, 1999, 2500));
+    }
+
+    @Test
+    void filtrarCodigoSinDistinguirMayusculas() throws IOException {
+        escribir(1000, cambio(1000, "LIM33"), cambio(1100, "lim33"), cambio(1200, "NAR44"), cambio(1300, "A\"B\\1"));
+
+        assertEquals(2, ConsultaAuditoria.consultar(directorio, "Lim33", Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(1, ConsultaAuditoria.consultar(directorio, "a\"b\\1", Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(0, ConsultaAuditoria.consultar(directorio, "LIM3", Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void desescaparCadenasJson() {
+        assertEquals("a\"b\\c\nd\u0001", ConsultaAuditoria.desescapar("a\\\"b\\\\c\\nd\\u0001"));
+    }
+
+    private void escribir(long inicio, CambioProducto... cambios) throws IOException {
+        List<String> lineas = new ArrayList<>();
+        for (CambioProducto cambio : cambios) {
+            lineas.add(cambio.toJson());
+        }
+        Path fichero = directorio.resolve(String.format("%s%013d%s",
+                RegistroAuditoria.PREFIJO_FICHERO, inicio, RegistroAuditoria.EXTENSION_FICHERO));
+        Files.write(fichero, lineas, StandardCharsets.UTF_8);
+    }
+
+    private static CambioProducto cambio(long instante, String codigo) {
+        return new CambioProducto(instante, "prueba", CambioProducto.Operacion.ACTUALIZACION, codigo,
+                new CambioProducto.Estado("ANTES", 1.0f, true), new CambioProducto.Estado("DESPUES", 2.0f, true));
+    }
+}
@@ -0,0 +1,82 @@
+package com.intissar.examen.Auditoria;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la escritura por lotes y la rotación del registro de auditoría en un directorio temporal.
+ */
+class RegistroAuditoriaTest {
+    @TempDir
+    Path directorio;
+
+    @Test
+    void escribirLosCambiosPorLotes() throws IOException {
+        RegistroAuditoria registro = new RegistroAuditoria(configuracion(16));
+        for (int i = 0; i < 5000; i++) {
+            registro.registrar(cambio(i, "PRODUCTO " + i));
+        }
+        registro.cerrar();
+
+        assertEquals(5000, registro.getEscritos());
+        // Como mucho mil cambios por lote, y muchos menos lotes que cambios
+        assertTrue(registro.getLotesEscritos() >= 5, "lotes: " + registro.getLotesEscritos());
+        assertTrue(registro.getLotesEscritos() < 5000, "lotes: " + registro.getLotesEscritos());
+        assertEquals(5000, contarLineas(ficheros()));
+    }
+
+    @Test
+    void rotarAlSuperarElTamanoMaximo() throws IOException {
+        RegistroAuditoria registro = new RegistroAuditoria(configuracion(1));
+        String nombre = "PRODUCTO CON UN NOMBRE LARGO PARA LLENAR EL FICHERO ANTES ".repeat(3);
+        for (int i = 0; i < 15000; i++) {
+            registro.registrar(cambio(i, nombre + i));
+        }
+        registro.cerrar();
+
+        List<Path> ficheros = ficheros();
+        assertTrue(ficheros.size() >= 3, "ficheros: " + ficheros);
+        for (Path fichero : ficheros) {
+            assertTrue(Files.size(fichero) <= 1024 * 1024, fichero + " ocupa " + Files.size(fichero));
+        }
+        assertEquals(15000, contarLineas(ficheros));
+    }
+
+    private Properties configuracion(int tamanoMb) {
+        Properties configuracion = new Properties();
+        configuracion.setProperty("auditoria.directorio", directorio.toString());
+        configuracion.setProperty("auditoria.tamano.mb", String.valueOf(tamanoMb));
+        configuracion.setProperty("auditoria.fsync", "false");
+        return configuracion;
+    }
+
+    private static CambioProducto cambio(int numero, String nombre) {
+        return new CambioProducto(1_700_000_000_000L + numero, "prueba", CambioProducto.Operacion.INSERCION,
+                "P" + numero, null, new CambioProducto.Estado(nombre, 1.5f, true));
+    }
+
+    private List<Path> ficheros() throws IOException {
+        try (Stream<Path> listado = Files.list(directorio)) {
+            return listado.sorted().toList();
+        }
+    }
+
+    private static long contarLineas(List<Path> ficheros) throws IOException {
+        long lineas = 0;
+        for (Path fichero : ficheros) {
+            lineas += Files.readAllLines(fichero, StandardCharsets.UTF_8).size();
+        }
+        return lineas;
+    }
+}
@@ -0,0 +1,130 @@
+package com.intissar.examen.Conexion;
+
+import com.intissar.examen.DAO.GobernadorEjecucion;
+import com.intissar.examen.DAO.Transaccion;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del reparto de lecturas entre primario y réplicas, con bases de datos H2 en memoria
+ * que identifican el nodo en una tabla.
+ */
+class TopologiaTest {
+    private static final String PRIMARIO = "jdbc:h2:mem:topologia-primario;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_1 = "jdbc:h2:mem:topologia-replica1;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_2 = "jdbc:h2:mem:topologia-replica2;DB_CLOSE_DELAY=-1";
+    // Ningún driver acepta esta URL, así que conectar falla de inmediato
+    private static final String REPLICA_CAIDA = "jdbc:noexiste:topologia-caida";
+    // Acepta conexiones pero no tiene la tabla nodo, así que las consultas fallan
+    private static final String REPLICA_VACIA = "jdbc:h2:mem:topologia-vacia;DB_CLOSE_DELAY=-1";
+
+    @BeforeAll
+    static void crearNodos() throws SQLException {
+        crearNodo(PRIMARIO, "primario");
+        crearNodo(REPLICA_1, "replica1");
+        crearNodo(REPLICA_2, "replica2");
+        GobernadorEjecucion.configurar(new Properties());
+    }
+
+    @Test
+    void repartirLecturasEnRoundRobin() throws SQLException {
+        configurar(REPLICA_1 + "," + REPLICA_2, 2000);
+
+        String primera = leerNodo();
+        String segunda = leerNodo();
+        String tercera = leerNodo();
+
+        assertTrue(Set.of("replica1", "replica2").containsAll(Set.of(primera, segunda)));
+        assertNotEquals(primera, segunda);
+        assertEquals(primera, tercera);
+    }
+
+    @Test
+    void leerDelPrimarioTrasConfirmarUnaEscritura() throws Exception {
+        configurar(REPLICA_1, 300);
+
+        try (Transaccion tx = new Transaccion()) {
+            // Abrir la conexión de escritura no basta para dirigir las lecturas al primario
+            assertEquals("replica1", leerNodo());
+            tx.confirmar();
+            assertEquals("primario", leerNodo());
+        }
+
+        Thread.sleep(400);
+        assertEquals("replica1", leerNodo());
+    }
+
+    @Test
+    void expulsarReplicaCaida() throws SQLException {
+        configurar(REPLICA_CAIDA + "," + REPLICA_1, 2000);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("replica1", leerNodo());
+        }
+        Topologia.Nodo caida = Topologia.getInstancia().getReplicas().get(0);
+        assertEquals(REPLICA_CAIDA, caida.getUrl());
+        assertFalse(caida.isDisponible());
+    }
+
+    @Test
+    void repetirEnElPrimarioSiLaReplicaFallaAlConsultar() throws SQLException {
+        configurar(REPLICA_VACIA, 2000);
+
+        DBConnect conexion = DBConnect.paraLectura();
+        try {
+            assertEquals("primario", conexion.leer(TopologiaTest::leerNodo));
+        } finally {
+            conexion.closeConnection();
+        }
+        Topologia.Nodo vacia = Topologia.getInstancia().getReplicas().get(0);
+        assertFalse(vacia.isDisponible());
+        assertEquals("primario", leerNodo());
+    }
+
+    private static void configurar(String replicas, long permanenciaMs) {
+        Properties configuracion = new Properties();
+        configuracion.setProperty("url", PRIMARIO);
+        configuracion.setProperty("replicas", replicas);
+        configuracion.setProperty("replicas.permanencia.ms", String.valueOf(permanenciaMs));
+        Topologia.configurar(configuracion);
+    }
+
+    private static void crearNodo(String url, String nombre) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS nodo (nombre VARCHAR(20))");
+            stmt.execute("DELETE FROM nodo");
+            stmt.execute("INSERT INTO nodo VALUES ('" + nombre + "')");
+        }
+    }
+
+    private static String leerNodo() throws SQLException {
+        DBConnect conexion = DBConnect.paraLectura();
+        try {
+            return leerNodo(conexion.getConnection());
+        } finally {
+            conexion.closeConnection();
+        }
+    }
+
+    private static String leerNodo(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet resultado = stmt.executeQuery("SELECT nombre FROM nodo")) {
+            resultado.next();
+            return resultado.getString(1);
+        }
+    }
+}
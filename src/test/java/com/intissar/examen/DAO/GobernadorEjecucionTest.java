@@ -0,0 +1,178 @@
+package com.intissar.examen.DAO;
+
+import com.intissar.examen.DAO.GobernadorEjecucion.TipoOperacion;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del límite adaptativo y de la cola de espera del gobernador, con operaciones simuladas
+ * (sin base de datos) sobre el tipo {@link TipoOperacion#CONSULTA}.
+ */
+class GobernadorEjecucionTest {
+    private static final TipoOperacion TIPO = TipoOperacion.CONSULTA;
+
+    @Test
+    void ampliarElLimiteSoloCuandoSeAprovecha() throws SQLException {
+        GobernadorEjecucion gobernador = new GobernadorEjecucion(configuracion(1, 3, 4, 1000, 10_000));
+
+        // Con límite 1 cada operación lo ocupa entero: +1/1 y pasa a 2
+        gobernador.ejecutar(TIPO, () -> null);
+        assertEquals(2, gobernador.getLimiteActual(TIPO));
+
+        // Con límite 2 y operaciones de una en una el límite no se aprovecha y no crece
+        for (int i = 0; i < 10; i++) {
+            gobernador.ejecutar(TIPO, () -> null);
+        }
+        assertEquals(2, gobernador.getLimiteActual(TIPO));
+    }
+
+    @Test
+    void noSuperarElMaximo() throws SQLException {
+        GobernadorEjecucion gobernador = new GobernadorEjecucion(configuracion(1, 1, 4, 1000, 10_000));
+
+        for (int i = 0; i < 10; i++) {
+            gobernador.ejecutar(TIPO, () -> null);
+        }
+        assertEquals(1, gobernador.getLimiteActual(TIPO));
+    }
+
+    @Test
+    void reducirElLimiteConErroresTransitorios() {
+        GobernadorEjecucion gobernador = new GobernadorEjecucion(configuracion(10, 10, 4, 1000, 10_000));
+
+        assertThrows(SQLTimeoutException.class, () -> gobernador.ejecutar(TIPO, () -> {
+            throw new SQLTimeoutException("timeout simulado");
+        }));
+        assertEquals(9, gobernador.getLimiteActual(TIPO));
+
+        // Un error transitorio que no es un timeout también indica sobrecarga: 9 * 0,9 = 8,1
+        assertThrows(SQLTransientConnectionException.class, () -> gobernador.ejecutar(TIPO, () -> {
+            throw new SQLTransientConnectionException("conexión rechazada");
+        }));
+        assertEquals(8, gobernador.getLimiteActual(TIPO));
+
+        // Un error no transitorio (SQL mal formado, clave duplicada...) no dice nada de la carga
+        assertThrows(SQLException.class, () -> gobernador.ejecutar(TIPO, () -> {
+            throw new SQLException("error de sintaxis");
+        }));
+        assertEquals(8, gobernador.getLimiteActual(TIPO));
+        assertEquals(0, gobernador.getEnEjecucion(TIPO));
+    }
+
+    @Test
+    void reducirElLimiteAlSuperarLaLatenciaObjetivo() throws SQLException {
+        GobernadorEjecucion gobernador = new GobernadorEjecucion(configuracion(2, 10, 4, 1, 10_000));
+
+        for (int i = 0; i < 20; i++) {
+            gobernador.ejecutar(TIPO, () -> {
+                dormir(5);
+                return null;
+            });
+        }
+        // Nunca baja del mínimo de uno
+        assertEquals(1, gobernador.getLimiteActual(TIPO));
+    }
+
+    @Test
+    void rechazarConLaColaLlena() throws Exception {
+        GobernadorEjecucion gobernador = new GobernadorEjecucion(configuracion(1, 1, 1, 1000, 10_000));
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Void> ocupante = ocupar(gobernador, liberar);
+        CompletableFuture<String> enCola = CompletableFuture.supplyAsync(() -> ejecutar(gobernador, () -> "en cola"));
+        esperarHasta(() -> gobernador.getEnEspera(TIPO) == 1);
+
+        SQLTransientException rechazo = assertThrows(SQLTransientException.class,
+                () -> gobernador.ejecutar(TIPO, () -> "rechazada"));
+        assertTrue(rechazo.getMessage().contains("cola de espera llena"), rechazo.getMessage());
+        assertEquals(1, gobernador.getRechazadas(TIPO));
+
+        // Al quedar libre el hueco, la operación encolada se ejecuta
+        liberar.countDown();
+        ocupante.get(5, TimeUnit.SECONDS);
+        assertEquals("en cola", enCola.get(5, TimeUnit.SECONDS));
+        assertEquals(0, gobernador.getEnEjecucion(TIPO));
+    }
+
+    @Test
+    void rechazarAlAgotarElTiempoDeEspera() throws Exception {
+        GobernadorEjecucion gobernador = new GobernadorEjecucion(configuracion(1, 1, 1, 1000, 50));
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Void> ocupante = ocupar(gobernador, liberar);
+        try {
+            SQLTransientException rechazo = assertThrows(SQLTransientException.class,
+                    () -> gobernador.ejecutar(TIPO, () -> "rechazada"));
+            assertTrue(rechazo.getMessage().contains("tiempo de espera agotado"), rechazo.getMessage());
+            assertEquals(1, gobernador.getRechazadas(TIPO));
+            assertEquals(0, gobernador.getEnEspera(TIPO));
+        } finally {
+            liberar.countDown();
+            ocupante.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Properties configuracion(int concurrencia, int maximo, int cola, long objetivoMs, long esperaMs) {
+        Properties configuracion = new Properties();
+        configuracion.setProperty("gobernador.consulta.concurrencia", String.valueOf(concurrencia));
+        configuracion.setProperty("gobernador.consulta.maximo", String.valueOf(maximo));
+        configuracion.setProperty("gobernador.consulta.cola", String.valueOf(cola));
+        configuracion.setProperty("gobernador.consulta.objetivo.ms", String.valueOf(objetivoMs));
+        configuracion.setProperty("gobernador.consulta.espera.ms", String.valueOf(esperaMs));
+        return configuracion;
+    }
+
+    /**
+     * Ocupa el único hueco del límite hasta que se abra el cerrojo.
+     */
+    private static CompletableFuture<Void> ocupar(GobernadorEjecucion gobernador, CountDownLatch liberar)
+            throws InterruptedException {
+        CountDownLatch dentro = new CountDownLatch(1);
+        CompletableFuture<Void> ocupante = CompletableFuture.runAsync(() -> ejecutar(gobernador, () -> {
+            dentro.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        assertTrue(dentro.await(5, TimeUnit.SECONDS));
+        return ocupante;
+    }
+
+    private static <T> T ejecutar(GobernadorEjecucion gobernador, GobernadorEjecucion.Operacion<T> operacion) {
+        try {
+            return gobernador.ejecutar(TIPO, operacion);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void esperarHasta(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "la condición no se cumplió a tiempo");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void dormir(long milisegundos) {
+        try {
+            Thread.sleep(milisegundos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
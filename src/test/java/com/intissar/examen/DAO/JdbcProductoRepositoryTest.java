@@ -0,0 +1,40 @@
+package com.intissar.examen.DAO;
+
+import com.intissar.examen.Auditoria.RegistroAuditoria;
+import com.intissar.examen.Carga.InicializadorBaseDatos;
+import com.intissar.examen.Conexion.Topologia;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Contrato de {@link ProductoRepository} sobre la base de datos, con una H2 en memoria en modo MariaDB
+ * inicializada con {@code examen1.sql} antes de cada prueba. La auditoría queda activa, para recorrer
+ * el mismo camino que la aplicación.
+ */
+class JdbcProductoRepositoryTest extends ProductoRepositoryContractTest {
+    private static final String URL = "jdbc:h2:mem:contrato;MODE=MariaDB;DB_CLOSE_DELAY=-1";
+
+    @TempDir
+    Path directorioAuditoria;
+
+    @Override
+    protected ProductoRepository crearRepositorio() throws Exception {
+        InicializadorBaseDatos.inicializar(URL, null, null, 0);
+
+        Properties configuracion = new Properties();
+        configuracion.setProperty("url", URL);
+        configuracion.setProperty("auditoria.directorio", directorioAuditoria.toString());
+        Topologia.configurar(configuracion);
+        GobernadorEjecucion.configurar(configuracion);
+        RegistroAuditoria.configurar(configuracion);
+        return new JdbcProductoRepository();
+    }
+
+    @AfterEach
+    void cerrarAuditoria() {
+        RegistroAuditoria.getInstancia().cerrar();
+    }
+}
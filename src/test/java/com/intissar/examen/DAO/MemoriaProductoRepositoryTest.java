@@ -0,0 +1,12 @@
+package com.intissar.examen.DAO;
+
+/**
+ * Contrato de {@link ProductoRepository} sobre el repositorio en memoria.
+ */
+class MemoriaProductoRepositoryTest extends ProductoRepositoryContractTest {
+
+    @Override
+    protected ProductoRepository crearRepositorio() {
+        return new MemoriaProductoRepository();
+    }
+}
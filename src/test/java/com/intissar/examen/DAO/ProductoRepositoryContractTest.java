@@ -0,0 +1,113 @@
+package com.intissar.examen.DAO;
+
+import com.intissar.examen.Modelo.Producto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.rowset.serial.SerialBlob;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comportamiento común que debe cumplir cualquier {@link ProductoRepository}.
+ * Cada motor de almacenamiento tiene una subclase que solo indica cómo crear el repositorio.
+ */
+abstract class ProductoRepositoryContractTest {
+    protected ProductoRepository repositorio;
+
+    /**
+     * Crea un repositorio vacío o con los productos de ejemplo, sin ninguno de los códigos TST usados en las pruebas.
+     *
+     * @return El repositorio a probar.
+     * @throws Exception Si no se puede preparar el almacenamiento.
+     */
+    protected abstract ProductoRepository crearRepositorio() throws Exception;
+
+    @BeforeEach
+    void prepararRepositorio() throws Exception {
+        repositorio = crearRepositorio();
+    }
+
+    @Test
+    void rechazarInsercionConCodigoRepetido() throws SQLException {
+        assertTrue(repositorio.agregarProducto(producto("TST01", "ORIGINAL", 1.5f, null)));
+        assertFalse(repositorio.agregarProducto(producto("TST01", "REPETIDO", 2.5f, null)));
+
+        assertEquals("ORIGINAL", repositorio.obtenerProductoPorCodigo("TST01").getNombre());
+    }
+
+    @Test
+    void noActualizarNiEliminarCodigoInexistente() throws SQLException {
+        assertFalse(repositorio.actualizarProducto(producto("TST02", "NO EXISTE", 1.5f, null)));
+        assertFalse(repositorio.eliminarProducto("TST02"));
+
+        assertNull(repositorio.obtenerProductoPorCodigo("TST02"));
+    }
+
+    @Test
+    void eliminarProductoExistente() throws SQLException {
+        repositorio.agregarProducto(producto("TST03", "BORRABLE", 1.5f, null));
+
+        assertTrue(repositorio.eliminarProducto("TST03"));
+        assertNull(repositorio.obtenerProductoPorCodigo("TST03"));
+    }
+
+    @Test
+    void conservarImagenAlActualizarSinImagen() throws SQLException {
+        byte[] imagen = {1, 2, 3, 4, 5};
+        repositorio.agregarProducto(producto("TST04", "CON IMAGEN", 1.5f, new SerialBlob(imagen)));
+
+        assertTrue(repositorio.actualizarProducto(producto("TST04", "ACTUALIZADO", 2.25f, null)));
+
+        Producto leido = repositorio.obtenerProductoPorCodigo("TST04");
+        assertEquals("ACTUALIZADO", leido.getNombre());
+        assertEquals(2.25f, leido.getPrecio());
+        assertNotNull(leido.getImagen());
+        assertArrayEquals(imagen, leido.getImagen().getBytes(1, (int) leido.getImagen().length()));
+    }
+
+    @Test
+    void tratarCodigosSinDistinguirMayusculas() throws SQLException {
+        assertTrue(repositorio.agregarProducto(producto("TST08", "MAYUSCULAS", 1.5f, null)));
+        assertFalse(repositorio.agregarProducto(producto("tst08", "MINUSCULAS", 1.5f, null)));
+
+        assertEquals("MAYUSCULAS", repositorio.obtenerProductoPorCodigo("tst08").getNombre());
+        assertTrue(repositorio.actualizarProducto(producto("Tst08", "ACTUALIZADO", 2.25f, null)));
+        Producto leido = repositorio.obtenerProductoPorCodigo("TST08");
+        assertEquals("TST08", leido.getCodigo());
+        assertEquals("ACTUALIZADO", leido.getNombre());
+
+        assertTrue(repositorio.eliminarProducto("tst08"));
+        assertNull(repositorio.obtenerProductoPorCodigo("TST08"));
+    }
+
+    @Test
+    void listarOrdenadoPorCodigo() throws SQLException {
+        for (String codigo : List.of("TST07", "TST05", "TST06")) {
+            repositorio.agregarProducto(producto(codigo, "LISTADO", 1.5f, null));
+        }
+
+        List<String> codigos = new ArrayList<>();
+        for (Producto producto : repositorio.obtenerTodosProductos()) {
+            codigos.add(producto.getCodigo());
+        }
+        List<String> ordenados = new ArrayList<>(codigos);
+        ordenados.sort(String.CASE_INSENSITIVE_ORDER);
+
+        assertEquals(ordenados, codigos);
+        assertTrue(codigos.containsAll(List.of("TST05", "TST06", "TST07")));
+    }
+
+    private static Producto producto(String codigo, String nombre, float precio, Blob imagen) {
+        return new Producto(codigo, nombre, precio, true, imagen);
+    }
+}
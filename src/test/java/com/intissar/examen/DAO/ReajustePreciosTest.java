@@ -0,0 +1,138 @@
+package com.intissar.examen.DAO;
+
+import com.intissar.examen.Auditoria.RegistroAuditoria;
+import com.intissar.examen.Carga.InicializadorBaseDatos;
+import com.intissar.examen.Conexion.Topologia;
+import com.intissar.examen.Modelo.ProgresoReajuste;
+import com.intissar.examen.Modelo.ReglaPrecio;
+import com.intissar.examen.Modelo.ResumenReajuste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas del reajuste masivo de precios por lotes sobre una H2 en memoria en modo MariaDB, inicializada con
+ * {@code examen1.sql} y 30 productos sintéticos antes de cada prueba. La regla solo afecta a los sintéticos
+ * (prefijo {@code S0}), de modo que los productos del script no deben cambiar.
+ */
+class ReajustePreciosTest {
+    private static final String URL = "jdbc:h2:mem:reajuste;MODE=MariaDB;DB_CLOSE_DELAY=-1";
+    private static final int SINTETICOS = 30;
+    private static final int LOTE = 7;
+
+    private Map<String, Float> preciosIniciales;
+
+    @BeforeEach
+    void prepararBaseDatos() throws Exception {
+        InicializadorBaseDatos.inicializar(URL, null, null, SINTETICOS);
+
+        Properties configuracion = new Properties();
+        configuracion.setProperty("url", URL);
+        configuracion.setProperty("auditoria.activa", "false");
+        Topologia.configurar(configuracion);
+        GobernadorEjecucion.configurar(configuracion);
+        RegistroAuditoria.configurar(configuracion);
+        preciosIniciales = precios();
+    }
+
+    @Test
+    void previsualizarSinModificarNada() throws SQLException {
+        double totalSinteticos = preciosIniciales.entrySet().stream()
+                .filter(precio -> precio.getKey().startsWith("S0"))
+                .mapToDouble(Map.Entry::getValue)
+                .sum();
+
+        ResumenReajuste resumen = ProductoDAO.previsualizarReajuste(regla());
+
+        assertEquals(SINTETICOS, resumen.getFilasAfectadas());
+        assertEquals(totalSinteticos, resumen.getTotalActual(), 0.01);
+        assertEquals(totalSinteticos + SINTETICOS, resumen.getTotalNuevo(), 0.01);
+        assertEquals(preciosIniciales, precios());
+    }
+
+    @Test
+    void confirmarLoteALote() throws SQLException {
+        List<ProgresoReajuste> avances = new ArrayList<>();
+
+        ProgresoReajuste resultado = ProductoDAO.aplicarReajuste(regla(), LOTE, null, avances::add);
+
+        // 30 productos en lotes de 7: cuatro lotes completos y uno de 2
+        assertEquals(5, resultado.getLotesCompletados());
+        assertEquals(SINTETICOS, resultado.getFilasActualizadas());
+        assertEquals(SINTETICOS, resultado.getFilasTotales());
+        assertEquals(5, avances.size());
+        assertEquals(List.of(7, 14, 21, 28, 30), avances.stream().map(ProgresoReajuste::getFilasActualizadas).toList());
+        assertEquals(resultado.getUltimoCodigo(), avances.get(4).getUltimoCodigo());
+
+        Map<String, Float> precios = precios();
+        for (Map.Entry<String, Float> inicial : preciosIniciales.entrySet()) {
+            float esperado = inicial.getKey().startsWith("S0") ? inicial.getValue() + 1 : inicial.getValue();
+            assertEquals(esperado, precios.get(inicial.getKey()), 0.001f, inicial.getKey());
+        }
+        assertEquals(1.89f, precios.get("LIM33"));
+    }
+
+    @Test
+    void reanudarTrasUnaInterrupcion() throws SQLException {
+        List<ProgresoReajuste> avances = new ArrayList<>();
+        // El proceso se corta justo después de confirmar el segundo lote
+        assertThrows(IllegalStateException.class, () -> ProductoDAO.aplicarReajuste(regla(), LOTE, null, avance -> {
+            avances.add(avance);
+            if (avance.getLotesCompletados() == 2) {
+                throw new IllegalStateException("interrupción simulada");
+            }
+        }));
+        String ultimoConfirmado = avances.get(1).getUltimoCodigo();
+
+        // Los dos lotes confirmados se quedan; el resto no se ha tocado
+        Map<String, Float> intermedios = precios();
+        int actualizados = 0;
+        for (Map.Entry<String, Float> inicial : preciosIniciales.entrySet()) {
+            String codigo = inicial.getKey();
+            boolean confirmado = codigo.startsWith("S0") && CursorProductos.ORDEN_CODIGOS.compare(codigo, ultimoConfirmado) <= 0;
+            assertEquals(confirmado ? inicial.getValue() + 1 : inicial.getValue(), intermedios.get(codigo), 0.001f, codigo);
+            actualizados += confirmado ? 1 : 0;
+        }
+        assertEquals(2 * LOTE, actualizados);
+
+        ProgresoReajuste resultado = ProductoDAO.aplicarReajuste(regla(), LOTE, ultimoConfirmado, null);
+
+        assertEquals(SINTETICOS - 2 * LOTE, resultado.getFilasTotales());
+        assertEquals(SINTETICOS - 2 * LOTE, resultado.getFilasActualizadas());
+        // Cada producto sintético se ha reajustado exactamente una vez
+        Map<String, Float> precios = precios();
+        for (Map.Entry<String, Float> inicial : preciosIniciales.entrySet()) {
+            float esperado = inicial.getKey().startsWith("S0") ? inicial.getValue() + 1 : inicial.getValue();
+            assertEquals(esperado, precios.get(inicial.getKey()), 0.001f, inicial.getKey());
+        }
+
+        // Reanudar desde el último código ya no encuentra nada que hacer
+        ProgresoReajuste vacio = ProductoDAO.aplicarReajuste(regla(), LOTE, resultado.getUltimoCodigo(), null);
+        assertEquals(0, vacio.getFilasActualizadas());
+        assertEquals(resultado.getUltimoCodigo(), vacio.getUltimoCodigo());
+    }
+
+    /**
+     * Suma un euro a los productos sintéticos, redondeando a dos decimales.
+     */
+    private static ReglaPrecio regla() {
+        ReglaPrecio regla = new ReglaPrecio(ReglaPrecio.TipoAjuste.ABSOLUTO, 1.0, 2);
+        regla.setPrefijoCodigo("S0");
+        return regla;
+    }
+
+    private static Map<String, Float> precios() throws SQLException {
+        Map<String, Float> precios = new TreeMap<>();
+        ProductoDAO.obtenerListadoProductos().forEach(producto -> precios.put(producto.getCodigo(), producto.getPrecio()));
+        return precios;
+    }
+}
@@ -0,0 +1,172 @@
+package com.intissar.examen.Importacion;
+
+import com.intissar.examen.Auditoria.RegistroAuditoria;
+import com.intissar.examen.Carga.InicializadorBaseDatos;
+import com.intissar.examen.Conexion.Topologia;
+import com.intissar.examen.DAO.CursorProductos;
+import com.intissar.examen.DAO.GobernadorEjecucion;
+import com.intissar.examen.DAO.ProductoDAO;
+import com.intissar.examen.Modelo.Producto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del merge ordenado del conciliador sobre una H2 en memoria en modo MariaDB, inicializada con
+ * {@code examen1.sql} y 100 productos sintéticos antes de cada prueba.
+ */
+class ConciliadorCatalogoTest {
+    private static final String URL = "jdbc:h2:mem:conciliador;MODE=MariaDB;DB_CLOSE_DELAY=-1";
+    private static final int PRODUCTOS = 107;
+
+    @TempDir
+    Path directorio;
+
+    private Path feed;
+
+    @BeforeEach
+    void prepararBaseDatos() throws Exception {
+        InicializadorBaseDatos.inicializar(URL, null, null, PRODUCTOS - 7);
+
+        Properties configuracion = new Properties();
+        configuracion.setProperty("url", URL);
+        configuracion.setProperty("auditoria.activa", "false");
+        Topologia.configurar(configuracion);
+        GobernadorEjecucion.configurar(configuracion);
+        RegistroAuditoria.configurar(configuracion);
+        feed = directorio.resolve("catalogo.csv");
+    }
+
+    @Test
+    void conciliarCodigosSinDistinguirMayusculas() throws Exception {
+        List<Producto> catalogo = almacenados();
+        catalogo.add(producto("aaa01", 1.5f));
+        catalogo.add(producto("BBB01", 2.5f));
+        Producto lim33 = buscar(catalogo, "LIM33");
+        catalogo.set(catalogo.indexOf(lim33), producto("lim33", 9.99f));
+        // aaa01 va antes que BBB01 sin distinguir mayúsculas, aunque en orden binario iría después
+        ordenar(catalogo);
+        escribirFeed(catalogo);
+
+        ResumenConciliacion resumen = conciliador(100).conciliar();
+
+        assertEquals(2, resumen.getInsertados());
+        assertEquals(1, resumen.getActualizados());
+        assertEquals(0, resumen.getEliminados());
+        Producto actualizado = ProductoDAO.obtenerProductoPorCodigo("LIM33");
+        assertEquals("LIM33", actualizado.getCodigo());
+        assertEquals(9.99f, actualizado.getPrecio());
+        assertEquals(PRODUCTOS + 2, ProductoDAO.contarProductos());
+
+        // Una segunda pasada con el mismo feed ya no encuentra diferencias
+        ResumenConciliacion repeticion = conciliador(100).conciliar();
+        assertEquals(PRODUCTOS + 2, repeticion.getSinCambios());
+    }
+
+    @Test
+    void rechazarFeedDesordenado() throws Exception {
+        List<Producto> catalogo = almacenados();
+        catalogo.add(0, catalogo.remove(catalogo.size() - 1));
+        escribirFeed(catalogo);
+
+        assertThrows(SQLException.class, () -> conciliador(100).conciliar());
+        assertEquals(PRODUCTOS, ProductoDAO.contarProductos());
+    }
+
+    @Test
+    void rechazarCodigoConAcentos() throws Exception {
+        List<Producto> catalogo = almacenados();
+        // La colación de la columna trataría CAFÉ1 y CAFE1 como el mismo producto
+        catalogo.add(0, producto("CAFÉ1", 1.5f));
+        escribirFeed(catalogo);
+
+        SQLException error = assertThrows(SQLException.class, () -> conciliador(100).conciliar());
+        assertTrue(error.getMessage().contains("CAFÉ1"));
+        assertEquals(PRODUCTOS, ProductoDAO.contarProductos());
+    }
+
+    @Test
+    void detenerBorradosQueSuperanElLimite() throws Exception {
+        // Con 107 productos y un límite del 10 % se pueden borrar 10
+        List<Producto> catalogo = almacenados();
+        escribirFeed(catalogo.subList(0, PRODUCTOS - 11));
+
+        SQLException error = assertThrows(SQLException.class, () -> conciliador(10).conciliar());
+        assertTrue(error.getMessage().contains("--forzar"));
+        assertEquals(PRODUCTOS, ProductoDAO.contarProductos());
+
+        escribirFeed(catalogo.subList(0, PRODUCTOS - 10));
+        assertEquals(10, conciliador(10).conciliar().getEliminados());
+        assertEquals(PRODUCTOS - 10, ProductoDAO.contarProductos());
+    }
+
+    @Test
+    void avisarDelLimiteEnSimulacion() throws Exception {
+        escribirFeed(almacenados().subList(0, 1));
+
+        ResumenConciliacion resumen = new ConciliadorCatalogo(feed, 50, true, true, 10).conciliar();
+
+        assertTrue(resumen.isLimiteBorradosSuperado());
+        assertEquals(PRODUCTOS - 1, resumen.getEliminados());
+        assertEquals(PRODUCTOS, ProductoDAO.contarProductos());
+    }
+
+    @Test
+    void borrarSinLimiteAlForzar() throws Exception {
+        escribirFeed(almacenados().subList(0, 1));
+
+        ResumenConciliacion resumen = conciliador(100).conciliar();
+
+        assertFalse(resumen.isLimiteBorradosSuperado());
+        assertEquals(PRODUCTOS - 1, resumen.getEliminados());
+        assertEquals(1, ProductoDAO.contarProductos());
+    }
+
+    private ConciliadorCatalogo conciliador(int maximoBorrados) {
+        // Lotes pequeños para que los borrados se repartan en varias transacciones
+        return new ConciliadorCatalogo(feed, 4, false, true, maximoBorrados);
+    }
+
+    private static List<Producto> almacenados() throws SQLException {
+        List<Producto> productos = new ArrayList<>(ProductoDAO.obtenerListadoProductos());
+        ordenar(productos);
+        return productos;
+    }
+
+    private static void ordenar(List<Producto> productos) {
+        productos.sort((a, b) -> CursorProductos.ORDEN_CODIGOS.compare(a.getCodigo(), b.getCodigo()));
+    }
+
+    private static Producto buscar(List<Producto> productos, String codigo) {
+        return productos.stream().filter(p -> p.getCodigo().equals(codigo)).findFirst().orElseThrow();
+    }
+
+    private static Producto producto(String codigo, float precio) {
+        return new Producto(codigo, "FEED " + codigo, precio, true, (Blob) null);
+    }
+
+    private void escribirFeed(List<Producto> productos) throws IOException {
+        List<String> lineas = new ArrayList<>();
+        lineas.add("codigo;nombre;precio;disponible");
+        for (Producto producto : productos) {
+            lineas.add(producto.getCodigo() + ";" + producto.getNombre() + ";" + producto.getPrecio() + ";"
+                    + (producto.isDisponible() ? 1 : 0));
+        }
+        Files.write(feed, lineas, StandardCharsets.UTF_8);
+    }
+}